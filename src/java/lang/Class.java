@@ -29,6 +29,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Member;
 import java.lang.reflect.Field;
+import java.lang.reflect.FieldCopier;
 import java.lang.reflect.Method;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
@@ -43,15 +44,23 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import sun.misc.Unsafe;
 import sun.reflect.ConstantPool;
+import sun.reflect.PinnedReference;
 import sun.reflect.Reflection;
 import sun.reflect.ReflectionFactory;
+import sun.reflect.RawFieldAccess;
+import sun.reflect.ReflectionSecrets;
+import sun.reflect.RootMemberAccess;
 import sun.reflect.generics.factory.CoreReflectionFactory;
 import sun.reflect.generics.factory.GenericsFactory;
 import sun.reflect.generics.repository.ClassRepository;
@@ -60,6 +69,7 @@ import sun.reflect.generics.repository.ConstructorRepository;
 import sun.reflect.generics.scope.ClassScope;
 import sun.security.util.SecurityConstants;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
 import sun.reflect.annotation.*;
 
 /**
@@ -119,6 +129,12 @@ public final
     private static native void registerNatives();
     static {
         registerNatives();
+        ReflectionSecrets.setRawFieldAccess(new RawFieldAccess() {
+                public Field searchDeclaredField(Class<?> c, String name) {
+                    // bypass caches, like AtomicReflectionData
+                    return searchFields(c.getDeclaredFields0(false), name);
+                }
+            });
     }
 
     /*
@@ -691,7 +707,12 @@ public final
             // but this API returns null for interfaces
             if (isInterface())
                 return null;
-            return getGenericInfo().getSuperclass();
+            ClassRepository info = getGenericInfo();
+            // The shared repository resolves the type on first use without
+            // locking; racing threads must not each get their own
+            synchronized (info) {
+                return info.getSuperclass();
+            }
         } else
             return getSuperclass();
     }
@@ -808,9 +829,13 @@ public final
      * @since 1.5
      */
     public Type[] getGenericInterfaces() {
-        if (getGenericSignature() != null)
-            return getGenericInfo().getSuperInterfaces();
-        else
+        if (getGenericSignature() != null) {
+            ClassRepository info = getGenericInfo();
+            // like getGenericSuperclass()
+            synchronized (info) {
+                return info.getSuperInterfaces();
+            }
+        } else
             return getInterfaces();
     }
 
@@ -891,25 +916,65 @@ public final
      * @since 1.5
      */
     public Method getEnclosingMethod() {
+        EnclosingMember enclosingMember = enclosingMember();
+        if (!(enclosingMember.root instanceof Method))
+            return null;
+        checkEnclosingMemberAccess(enclosingMember.enclosingClass);
+        return getReflectionFactory().copyMethod((Method) enclosingMember.root);
+    }
+
+    // The root of the method or constructor immediately enclosing a local
+    // or anonymous class, or null if there is none, resolved against the
+    // enclosing class as of the given count of its redefinitions
+    static final class EnclosingMember {
+        final Object root;
+        final Class<?> enclosingClass;
+        final int enclosingRedefinedCount;
+
+        EnclosingMember(Object root, Class<?> enclosingClass, int enclosingRedefinedCount) {
+            this.root = root;
+            this.enclosingClass = enclosingClass;
+            this.enclosingRedefinedCount = enclosingRedefinedCount;
+        }
+
+        boolean isCurrent() {
+            return enclosingClass == null ||
+                   enclosingClass.classRedefinedCount == enclosingRedefinedCount;
+        }
+    }
+
+    private static final EnclosingMember NO_ENCLOSING_MEMBER = new EnclosingMember(null, null, 0);
+
+    // Returns the enclosing member, cached in VolatileData as it changes
+    // when this class is redefined and must be resolved again when the
+    // enclosing class is
+    private EnclosingMember enclosingMember() {
+        VolatileData<T> vd = volatileData();
+        EnclosingMember enclosingMember = vd == null ? null : vd.enclosingMember;
+        if (enclosingMember == null || !enclosingMember.isCurrent()) {
+            enclosingMember = resolveEnclosingMember();
+            if (vd != null) {
+                vd.enclosingMember = enclosingMember;
+            }
+        }
+        return enclosingMember;
+    }
+
+    private EnclosingMember resolveEnclosingMember() {
         EnclosingMethodInfo enclosingInfo = getEnclosingMethodInfo();
 
         if (enclosingInfo == null)
-            return null;
-        else {
-            if (!enclosingInfo.isMethod())
-                return null;
+            return NO_ENCLOSING_MEMBER;
+        Class<?> enclosingClass = enclosingInfo.getEnclosingClass();
+        // read before the roots, so that a concurrent redefinition of the
+        // enclosing class makes the result stale
+        int enclosingRedefinedCount = enclosingClass.classRedefinedCount;
 
+        if (enclosingInfo.isMethod()) {
             MethodRepository typeInfo = MethodRepository.make(enclosingInfo.getDescriptor(),
                                                               getFactory());
             Class<?>   returnType       = toClass(typeInfo.getReturnType());
-            Type []    parameterTypes   = typeInfo.getParameterTypes();
-            Class<?>[] parameterClasses = new Class<?>[parameterTypes.length];
-
-            // Convert Types to Classes; returned types *should*
-            // be class objects since the methodDescriptor's used
-            // don't have generics information
-            for(int i = 0; i < parameterClasses.length; i++)
-                parameterClasses[i] = toClass(parameterTypes[i]);
+            Class<?>[] parameterClasses = toClasses(typeInfo.getParameterTypes());
 
             /*
              * Loop over all declared methods; match method name,
@@ -917,28 +982,53 @@ public final
              * type.  Matching return type is also necessary
              * because of covariant returns, etc.
              */
-            for(Method m: enclosingInfo.getEnclosingClass().getDeclaredMethods()) {
-                if (m.getName().equals(enclosingInfo.getName()) ) {
-                    Class<?>[] candidateParamClasses = m.getParameterTypes();
-                    if (candidateParamClasses.length == parameterClasses.length) {
-                        boolean matches = true;
-                        for(int i = 0; i < candidateParamClasses.length; i++) {
-                            if (!candidateParamClasses[i].equals(parameterClasses[i])) {
-                                matches = false;
-                                break;
-                            }
-                        }
-
-                        if (matches) { // finally, check return type
-                            if (m.getReturnType().equals(returnType) )
-                                return m;
-                        }
-                    }
-                }
+            for(Method m: enclosingClass.privateGetDeclaredMethods(false)) {
+                if (m.getName().equals(enclosingInfo.getName()) &&
+                    arrayContentsEq(m.getParameterTypes(), parameterClasses) &&
+                    m.getReturnType().equals(returnType))
+                    return new EnclosingMember(m, enclosingClass, enclosingRedefinedCount);
             }
 
             throw new InternalError("Enclosing method not found");
         }
+
+        if (enclosingInfo.isConstructor()) {
+            ConstructorRepository typeInfo = ConstructorRepository.make(enclosingInfo.getDescriptor(),
+                                                                        getFactory());
+            Class<?>[] parameterClasses = toClasses(typeInfo.getParameterTypes());
+
+            /*
+             * Loop over all declared constructors; match number
+             * of and type of parameters.
+             */
+            for(Constructor<?> c: enclosingClass.privateGetDeclaredConstructors(false)) {
+                if (arrayContentsEq(c.getParameterTypes(), parameterClasses))
+                    return new EnclosingMember(c, enclosingClass, enclosingRedefinedCount);
+            }
+
+            throw new InternalError("Enclosing constructor not found");
+        }
+
+        return new EnclosingMember(null, enclosingClass, enclosingRedefinedCount);
+    }
+
+    // Convert Types to Classes; returned types *should*
+    // be class objects since the methodDescriptor's used
+    // don't have generics information
+    private static Class<?>[] toClasses(Type[] types) {
+        Class<?>[] classes = new Class<?>[types.length];
+        for(int i = 0; i < classes.length; i++)
+            classes[i] = toClass(types[i]);
+        return classes;
+    }
+
+    // Performs the check getDeclaredMethods() and getDeclaredConstructors()
+    // of the enclosing class did when they were called to resolve the
+    // enclosing member. Must be called directly from getEnclosingMethod()
+    // and getEnclosingConstructor(), so that the stack depth of the
+    // checkMemberAccess call is the same.
+    private static void checkEnclosingMemberAccess(Class<?> enclosingClass) {
+        enclosingClass.checkMemberAccess(Member.DECLARED, null);
     }
 
     private native Object[] getEnclosingMethod0();
@@ -1019,47 +1109,11 @@ public final
      * @since 1.5
      */
     public Constructor<?> getEnclosingConstructor() {
-        EnclosingMethodInfo enclosingInfo = getEnclosingMethodInfo();
-
-        if (enclosingInfo == null)
+        EnclosingMember enclosingMember = enclosingMember();
+        if (!(enclosingMember.root instanceof Constructor))
             return null;
-        else {
-            if (!enclosingInfo.isConstructor())
-                return null;
-
-            ConstructorRepository typeInfo = ConstructorRepository.make(enclosingInfo.getDescriptor(),
-                                                                        getFactory());
-            Type []    parameterTypes   = typeInfo.getParameterTypes();
-            Class<?>[] parameterClasses = new Class<?>[parameterTypes.length];
-
-            // Convert Types to Classes; returned types *should*
-            // be class objects since the methodDescriptor's used
-            // don't have generics information
-            for(int i = 0; i < parameterClasses.length; i++)
-                parameterClasses[i] = toClass(parameterTypes[i]);
-
-            /*
-             * Loop over all declared constructors; match number
-             * of and type of parameters.
-             */
-            for(Constructor<?> c: enclosingInfo.getEnclosingClass().getDeclaredConstructors()) {
-                Class<?>[] candidateParamClasses = c.getParameterTypes();
-                if (candidateParamClasses.length == parameterClasses.length) {
-                    boolean matches = true;
-                    for(int i = 0; i < candidateParamClasses.length; i++) {
-                        if (!candidateParamClasses[i].equals(parameterClasses[i])) {
-                            matches = false;
-                            break;
-                        }
-                    }
-
-                    if (matches)
-                        return c;
-                }
-            }
-
-            throw new InternalError("Enclosing constructor not found");
-        }
+        checkEnclosingMemberAccess(enclosingMember.enclosingClass);
+        return getReflectionFactory().copyConstructor((Constructor<?>) enclosingMember.root);
     }
 
 
@@ -1124,6 +1178,65 @@ public final
      * @since 1.5
      */
     public String getSimpleName() {
+        NameData nameData = nameData();
+        return nameData != null ? nameData.simpleName : computeSimpleName();
+    }
+
+    // The simple and canonical names of a class and whether it is an
+    // anonymous, local or member class. None of these can change, not
+    // even by a redefinition, so they are computed once per class.
+    private static final class NameData {
+        static final int ANONYMOUS = 1;
+        static final int LOCAL = 1 << 1;
+        static final int MEMBER = 1 << 2;
+
+        final String simpleName;
+        // null if the class has no canonical name
+        final String canonicalName;
+        final int kind;
+
+        NameData(String simpleName, String canonicalName, int kind) {
+            this.simpleName = simpleName;
+            this.canonicalName = canonicalName;
+            this.kind = kind;
+        }
+    }
+
+    // NameData is immutable, so a racy initialization is safe
+    private transient NameData nameData;
+
+    // Returns null if the name or the enclosing method information of the
+    // class is malformed; then nothing is cached and each method computes
+    // its result, or throws, as it always did
+    private NameData nameData() {
+        NameData nameData = this.nameData;
+        if (nameData == null) {
+            try {
+                nameData = computeNameData();
+            } catch (InternalError e) {
+                return null;
+            }
+            this.nameData = nameData;
+        }
+        return nameData;
+    }
+
+    private NameData computeNameData() {
+        String simpleName = computeSimpleName();
+        int kind = 0;
+        if (!isArray()) {
+            boolean localOrAnonymous = isLocalOrAnonymousClass();
+            if ("".equals(simpleName))
+                kind |= NameData.ANONYMOUS;
+            else if (localOrAnonymous)
+                kind |= NameData.LOCAL;
+            if (getSimpleBinaryName() != null && !localOrAnonymous)
+                kind |= NameData.MEMBER;
+        }
+        return new NameData(simpleName, computeCanonicalName(), kind);
+    }
+
+    private String computeSimpleName() {
         if (isArray())
             return getComponentType().getSimpleName()+"[]";
 
@@ -1175,6 +1288,11 @@ public final
      * @since 1.5
      */
     public String getCanonicalName() {
+        NameData nameData = nameData();
+        return nameData != null ? nameData.canonicalName : computeCanonicalName();
+    }
+
+    private String computeCanonicalName() {
         if (isArray()) {
             String canonicalName = getComponentType().getCanonicalName();
             if (canonicalName != null)
@@ -1191,7 +1309,7 @@ public final
             String enclosingName = enclosingClass.getCanonicalName();
             if (enclosingName == null)
                 return null;
-            return enclosingName + "." + getSimpleName();
+            return enclosingName + "." + computeSimpleName();
         }
     }
 
@@ -1203,6 +1321,9 @@ public final
      * @since 1.5
      */
     public boolean isAnonymousClass() {
+        NameData nameData = nameData();
+        if (nameData != null)
+            return (nameData.kind & NameData.ANONYMOUS) != 0;
         return "".equals(getSimpleName());
     }
 
@@ -1214,6 +1335,9 @@ public final
      * @since 1.5
      */
     public boolean isLocalClass() {
+        NameData nameData = nameData();
+        if (nameData != null)
+            return (nameData.kind & NameData.LOCAL) != 0;
         return isLocalOrAnonymousClass() && !isAnonymousClass();
     }
 
@@ -1225,6 +1349,9 @@ public final
      * @since 1.5
      */
     public boolean isMemberClass() {
+        NameData nameData = nameData();
+        if (nameData != null)
+            return (nameData.kind & NameData.MEMBER) != 0;
         return getSimpleBinaryName() != null && !isLocalOrAnonymousClass();
     }
 
@@ -1852,6 +1979,282 @@ public final
     }
 
 
+    /**
+     * Returns a {@code FieldCopier} that copies the values of all instance
+     * fields declared by the class represented by this {@code Class} object
+     * from one instance to another in a single generated method call. If
+     * {@code includeSuperclasses} is {@code true}, the instance fields
+     * declared by all superclasses are copied as well. Static fields are
+     * never copied.
+     *
+     * <p> The copier is cached, so repeated calls are cheap.
+     *
+     * @param includeSuperclasses whether the instance fields declared by
+     *        the superclasses of this class are copied too
+     * @return the {@code FieldCopier} for this class
+     * @exception  SecurityException
+     *             If a security manager, <i>s</i>, is present and any of the
+     *             following conditions is met:
+     *
+     *             <ul>
+     *
+     *             <li> invocation of
+     *             {@link SecurityManager#checkMemberAccess
+     *             s.checkMemberAccess(c, Member.DECLARED)} denies
+     *             access to the declared fields within this class or,
+     *             if {@code includeSuperclasses} is {@code true}, any
+     *             of its superclasses
+     *
+     *             <li> the caller's class loader is not the same as or an
+     *             ancestor of the class loader for the current class and
+     *             invocation of {@link SecurityManager#checkPackageAccess
+     *             s.checkPackageAccess()} denies access to the package
+     *             of this class
+     *
+     *             <li> invocation of {@link SecurityManager#checkPermission
+     *             s.checkPermission} with a
+     *             {@code ReflectPermission("suppressAccessChecks")}
+     *             permission denies suppressing the language access
+     *             checks, as the copier reads and writes private and
+     *             final fields the same as
+     *             {@link java.lang.reflect.AccessibleObject#setAccessible(boolean)
+     *             setAccessible(true)} would allow
+     *
+     *             </ul>
+     *
+     * @see java.lang.reflect.FieldCopier
+     * @since 1.8
+     */
+    public FieldCopier<T> getFieldCopier(boolean includeSuperclasses) throws SecurityException {
+        // be very careful not to change the stack depth of this
+        // checkMemberAccess call for security reasons
+        // see java.lang.SecurityManager.checkMemberAccess
+        ClassLoader ccl = ClassLoader.getCallerClassLoader();
+        checkMemberAccess(Member.DECLARED, ccl);
+        if (includeSuperclasses) {
+            for (Class<?> c = getSuperclass(); c != null; c = c.getSuperclass()) {
+                c.checkMemberAccess(Member.DECLARED, ccl);
+            }
+        }
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null) {
+            sm.checkPermission(SUPPRESS_ACCESS_CHECKS_PERMISSION);
+        }
+        return privateGetFieldCopier(includeSuperclasses);
+    }
+
+    /**
+     * Sets whether the reflection data cached for this class is held
+     * strongly. The fields, methods and constructors of a class are always
+     * cached strongly, but its parsed annotations, those of its declared
+     * members and its generic type information are by default only
+     * softly reachable, and are dropped when the garbage collector clears
+     * soft references, to be re-parsed on next use. Pinning a class trades
+     * the memory taken by that data for predictable reflection latency
+     * after such a collection.
+     *
+     * <p> If there is a security manager installed, this method first calls
+     * the security manager's {@code checkPermission} method with a
+     * {@code RuntimePermission("reflectionDataPinning")} permission, since
+     * pinning lets the caller hold memory that the garbage collector could
+     * otherwise reclaim.
+     *
+     * <p> Classes can also be pinned at startup with the system property
+     * {@code sun.reflect.pinnedClasses}, a comma-separated list of fully
+     * qualified class names and of package names followed by {@code .*},
+     * which pins all classes in that package and its subpackages. Calling
+     * this method overrides the property for this class.
+     *
+     * @param pinned {@code true} to hold the reflection data of this class
+     *        strongly, {@code false} to let it be cleared under memory
+     *        pressure
+     * @throws SecurityException
+     *        if a security manager exists and its
+     *        {@code checkPermission} method doesn't allow
+     *        changing whether the reflection data is pinned.
+     * @see #isReflectionDataPinned()
+     * @see java.lang.RuntimePermission
+     * @since 1.8
+     */
+    public void setReflectionDataPinned(boolean pinned) {
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null) {
+            sm.checkPermission(new RuntimePermission("reflectionDataPinning"));
+        }
+        checkInitted();
+        pinState = pinned ? PIN_YES : PIN_NO;
+        rewrapTiers();
+    }
+
+    /**
+     * Returns whether the reflection data cached for this class is held
+     * strongly, either because of a call to
+     * {@link #setReflectionDataPinned(boolean)} or because the class
+     * matches the system property {@code sun.reflect.pinnedClasses}.
+     *
+     * @return {@code true} if the reflection data of this class is pinned
+     * @see #setReflectionDataPinned(boolean)
+     * @since 1.8
+     */
+    public boolean isReflectionDataPinned() {
+        checkInitted();
+        int state = pinState;
+        if (state == PIN_UNKNOWN) {
+            if (!initted) {
+                // sun.reflect.pinnedClasses not read yet
+                return false;
+            }
+            state = matchesPinnedClasses(getName()) ? PIN_YES : PIN_NO;
+            pinState = state;
+        }
+        return state == PIN_YES;
+    }
+
+    /**
+     * Populates the reflection data cached for this class: its declared
+     * and public fields, methods and constructors, the annotations of the
+     * class and of its declared members, and its generic type information.
+     * Reflective operations on this class then no longer need to query the
+     * virtual machine or parse class file attributes on first use. This is
+     * meant to move that work ahead of latency-sensitive code, for example
+     * to run before a service accepts requests.
+     *
+     * <p> Warming up has no effect other than on performance. Cached data
+     * that is only softly reachable may be cleared again later, see
+     * {@link #setReflectionDataPinned(boolean)}.
+     *
+     * @exception  SecurityException
+     *             If a security manager, <i>s</i>, is present and
+     *             invocation of {@link SecurityManager#checkMemberAccess
+     *             s.checkMemberAccess(this, Member.DECLARED)} denies
+     *             access to the declared members of this class, or the
+     *             caller's class loader is not the same as or an
+     *             ancestor of the class loader for the current class and
+     *             invocation of {@link SecurityManager#checkPackageAccess
+     *             s.checkPackageAccess()} denies access to the package
+     *             of this class
+     * @exception  LinkageError if the types the members of this class
+     *             refer to cannot be loaded, as the corresponding
+     *             reflective methods would throw
+     * @see #warmUpReflectionData(Collection, ForkJoinPool)
+     * @since 1.8
+     */
+    public void warmUpReflectionData() throws SecurityException {
+        // be very careful not to change the stack depth of this
+        // checkMemberAccess call for security reasons
+        // see java.lang.SecurityManager.checkMemberAccess
+        checkMemberAccess(Member.DECLARED, ClassLoader.getCallerClassLoader());
+        privateWarmUp();
+    }
+
+    /**
+     * Populates the reflection data cached for each of the given classes,
+     * as {@link #warmUpReflectionData()} does for a single class. If a
+     * {@code pool} is given, the classes are warmed up in parallel by its
+     * workers and this method returns when all of them are done; otherwise
+     * they are warmed up in turn by the calling thread.
+     *
+     * <p> Classes whose members refer to types that cannot be loaded, or
+     * whose annotations are malformed, are skipped; the corresponding
+     * error is thrown when their reflection data is next used.
+     *
+     * @param classes the classes to warm up
+     * @param pool the pool to warm up the classes in parallel with, or
+     *        {@code null} to warm them up on the calling thread
+     * @exception  SecurityException
+     *             If a security manager is present and denies access to
+     *             the declared members of any of the given classes, as
+     *             specified by {@link #warmUpReflectionData()}; no class
+     *             is warmed up in that case
+     * @exception  NullPointerException if {@code classes} or any of its
+     *             elements is {@code null}
+     * @since 1.8
+     */
+    public static void warmUpReflectionData(Collection<? extends Class<?>> classes,
+                                            ForkJoinPool pool)
+        throws SecurityException
+    {
+        Class<?>[] cs = classes.toArray(new Class<?>[classes.size()]);
+        // be very careful not to change the stack depth of this
+        // checkMemberAccess call for security reasons
+        // see java.lang.SecurityManager.checkMemberAccess
+        ClassLoader ccl = ClassLoader.getCallerClassLoader();
+        for (Class<?> c : cs) {
+            c.checkMemberAccess(Member.DECLARED, ccl);
+        }
+        if (pool == null) {
+            warmUp(cs, 0, cs.length);
+        } else {
+            pool.invoke(new WarmUpTask(cs, 0, cs.length));
+        }
+    }
+
+    private static void warmUp(Class<?>[] cs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            try {
+                cs[i].privateWarmUp();
+            } catch (LinkageError | AnnotationFormatError | TypeNotPresentException e) {
+                // left to be thrown on first use
+            }
+        }
+    }
+
+    // Warms up a range of classes, splitting it among the workers of the
+    // pool it runs in
+    private static final class WarmUpTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        // few enough classes to warm up by one task
+        private static final int THRESHOLD = 16;
+
+        private final Class<?>[] classes;
+        private final int from, to;
+
+        WarmUpTask(Class<?>[] classes, int from, int to) {
+            this.classes = classes;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                warmUp(classes, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new WarmUpTask(classes, from, mid),
+                          new WarmUpTask(classes, mid, to));
+            }
+        }
+    }
+
+    private void privateWarmUp() {
+        checkInitted();
+        if (!useCaches) {
+            return;
+        }
+        privateGetDeclaredFields(false);
+        privateGetDeclaredMethods(false);
+        privateGetDeclaredConstructors(false);
+        privateGetPublicFields(null);
+        privateGetPublicMethods();
+        privateGetDeclaredConstructors(true);
+        privateGetAnnotations(false);
+        // member annotations are cached on the roots; parsing them does
+        // not hand the roots out
+        for (Field f : privateGetDeclaredFields(false)) {
+            f.getDeclaredAnnotations();
+        }
+        for (Method m : privateGetDeclaredMethods(false)) {
+            m.getDeclaredAnnotations();
+        }
+        for (Constructor<T> c : privateGetDeclaredConstructors(false)) {
+            c.getDeclaredAnnotations();
+        }
+        if (getGenericSignature() != null) {
+            getGenericInfo();
+        }
+    }
+
+
     /**
      * Returns a {@code Field} object that reflects the specified declared
      * field of the class or interface represented by this {@code Class}
@@ -2212,6 +2615,11 @@ public final
 
     // Caches for certain reflective results
     private static boolean useCaches = true;
+    // Whether the raw annotations of cached roots are kept off-heap
+    private static boolean offHeapAnnotations;
+    // Whether identical raw annotations of the cached roots of a class are
+    // shared, see java.lang.reflect.AnnotationDeduplication
+    private static boolean deduplicateAnnotations = true;
 
     // volatile data that might get invalid when JVM TI RedefineClasses() is called
     static class VolatileData<T> {
@@ -2224,14 +2632,119 @@ public final
         // Intermediate results for getFields and getMethods
         volatile Field[] declaredPublicFields;
         volatile Method[] declaredPublicMethods;
-        // Annotations
-        volatile Map<Class<? extends Annotation>, Annotation> annotations;
-        volatile Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+        // The arrays publicFields and publicMethods were built from, in the
+        // order they were read; see Class.sameInputs(). Written before the
+        // aggregate itself.
+        volatile Object[] publicFieldsInputs;
+        volatile Object[] publicMethodsInputs;
+        // Parsed annotations; softly held, see newTierReference()
+        volatile SoftReference<AnnotationData> annotationData;
+        // Generic info repository; softly held, published by CAS so that
+        // all threads resolve generic types through the same one
+        volatile SoftReference<ClassRepository> genericInfo;
+        // Resolved enclosing method or constructor of a local or anonymous
+        // class; see Class.enclosingMember()
+        volatile EnclosingMember enclosingMember;
+        // Generated field copiers (declared fields only / including superclasses)
+        volatile FieldCopier<T> declaredFieldCopier;
+        volatile FieldCopier<T> fieldCopier;
         // Value of classRedefinedCount when we created this VolatileData instance
         final int redefinedCount;
 
-        VolatileData(int redefinedCount) {
+        // Bits of the slots currently being fetched from the VM by some
+        // thread; see beginFetch()
+        private volatile int inFlight;
+        static final int DECLARED_FIELDS = 1;
+        static final int DECLARED_PUBLIC_FIELDS = 1 << 1;
+        static final int DECLARED_METHODS = 1 << 2;
+        static final int DECLARED_PUBLIC_METHODS = 1 << 3;
+        static final int DECLARED_CONSTRUCTORS = 1 << 4;
+        static final int PUBLIC_CONSTRUCTORS = 1 << 5;
+        // Annotations are not coalesced: parsing them may re-enter
+        // privateGetAnnotations() for the same class on the same thread
+
+        // How long threads wait for another thread's fetch before fetching
+        // themselves; the fetching thread may have been descheduled
+        private static final int MAX_SPINS = 64;
+        private static final int MAX_YIELDS = 256;
+
+        // The slots fetched from the VM before the last redefinition of the
+        // class, or null. Freshly fetched members are reconciled against
+        // them, see Class.reconcile().
+        final VolatileData<T> previous;
+
+        VolatileData(int redefinedCount, VolatileData<T> previous) {
             this.redefinedCount = redefinedCount;
+            this.previous = previous;
+        }
+
+        // Returns a VolatileData with the slots fetched from the VM by this
+        // one or, where this one has not fetched them yet, by the previous
+        // one, for the VolatileData replacing this one to reconcile against.
+        // The aggregates are kept together with the inputs they were built
+        // from, so that they can be reused when the inputs turn out to be
+        // unchanged.
+        VolatileData<T> snapshot() {
+            VolatileData<T> p = previous;
+            VolatileData<T> s = new VolatileData<>(redefinedCount, null);
+            if (p == null) {
+                p = s;
+            }
+            s.declaredFields = declaredFields != null ? declaredFields : p.declaredFields;
+            s.declaredPublicFields = declaredPublicFields != null ? declaredPublicFields : p.declaredPublicFields;
+            s.declaredMethods = declaredMethods != null ? declaredMethods : p.declaredMethods;
+            s.declaredPublicMethods = declaredPublicMethods != null ? declaredPublicMethods : p.declaredPublicMethods;
+            s.declaredConstructors = declaredConstructors != null ? declaredConstructors : p.declaredConstructors;
+            s.publicConstructors = publicConstructors != null ? publicConstructors : p.publicConstructors;
+            s.annotationData = annotationData != null ? annotationData : p.annotationData;
+            VolatileData<T> a = publicFields != null ? this : p;
+            s.publicFields = a.publicFields;
+            s.publicFieldsInputs = a.publicFieldsInputs;
+            a = publicMethods != null ? this : p;
+            s.publicMethods = a.publicMethods;
+            s.publicMethodsInputs = a.publicMethodsInputs;
+            return s;
+        }
+
+        /**
+         * Claims the given slot for fetching. Returns true if the caller
+         * now owns the fetch and must call {@link #endFetch} when done, or
+         * false if another thread is already fetching it, in which case the
+         * caller should {@link #awaitFetch} and re-read the slot.
+         */
+        boolean beginFetch(int slot) {
+            while (true) {
+                int bits = inFlight;
+                if ((bits & slot) != 0) {
+                    return false;
+                }
+                if (unsafe.compareAndSwapInt(this, inFlightOffset, bits, bits | slot)) {
+                    return true;
+                }
+            }
+        }
+
+        void endFetch(int slot) {
+            while (true) {
+                int bits = inFlight;
+                if (unsafe.compareAndSwapInt(this, inFlightOffset, bits, bits & ~slot)) {
+                    return;
+                }
+            }
+        }
+
+        // Waits a bounded time for the fetch of the given slot to finish.
+        // Returns early if it does; the caller re-reads the slot and fetches
+        // itself if it is still empty.
+        void awaitFetch(int slot) {
+            for (int i = 0; i < MAX_SPINS + MAX_YIELDS; i++) {
+                if ((inFlight & slot) == 0) {
+                    return;
+                }
+                if (i >= MAX_SPINS) {
+                    Thread.yield();
+                }
+            }
         }
 
         // initialize Unsafe machinery here, since we need to call Class.class instance method and would like to avoid
@@ -2239,6 +2752,10 @@ public final
         private static final Unsafe unsafe;
         // offset of Class.volatileData instance field
         private static final long volatileDataOffset;
+        // offset of VolatileData.inFlight instance field
+        private static final long inFlightOffset;
+        // offset of VolatileData.genericInfo instance field
+        private static final long genericInfoOffset;
 
         static {
             unsafe = Unsafe.getUnsafe();
@@ -2246,14 +2763,106 @@ public final
             Field volatileDataField = searchFields(Class.class.getDeclaredFields0(false), "volatileData");
             if (volatileDataField == null) throw new Error("No volatileData field found in java.lang.Class");
             volatileDataOffset = unsafe.objectFieldOffset(volatileDataField);
+            Field inFlightField = searchFields(VolatileData.class.getDeclaredFields0(false), "inFlight");
+            if (inFlightField == null) throw new Error("No inFlight field found in java.lang.Class.VolatileData");
+            inFlightOffset = unsafe.objectFieldOffset(inFlightField);
+            Field genericInfoField = searchFields(VolatileData.class.getDeclaredFields0(false), "genericInfo");
+            if (genericInfoField == null) throw new Error("No genericInfo field found in java.lang.Class.VolatileData");
+            genericInfoOffset = unsafe.objectFieldOffset(genericInfoField);
         }
 
-        static <T> boolean compareAndSwap(Class<?> clazz, SoftReference<VolatileData<T>> oldData, SoftReference<VolatileData<T>> newData) {
+        static <T> boolean compareAndSwap(Class<?> clazz, VolatileData<T> oldData, VolatileData<T> newData) {
             return unsafe.compareAndSwapObject(clazz, volatileDataOffset, oldData, newData);
         }
+
+        boolean casGenericInfo(SoftReference<ClassRepository> oldInfo,
+                               SoftReference<ClassRepository> newInfo) {
+            return unsafe.compareAndSwapObject(this, genericInfoOffset, oldInfo, newInfo);
+        }
+    }
+
+    // Annotations of a class, the expensive to rebuild tier of VolatileData
+    static final class AnnotationData {
+        final Map<Class<? extends Annotation>, Annotation> annotations;
+        final Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+        // what declaredAnnotations were parsed from
+        final byte[] rawAnnotations;
+        // the superclass annotations that annotations inherits from, or
+        // null; like the inputs of other aggregates, see sameInputs()
+        final Map<Class<? extends Annotation>, Annotation> superAnnotations;
+
+        AnnotationData(Map<Class<? extends Annotation>, Annotation> annotations,
+                       Map<Class<? extends Annotation>, Annotation> declaredAnnotations,
+                       byte[] rawAnnotations,
+                       Map<Class<? extends Annotation>, Annotation> superAnnotations) {
+            this.annotations = annotations;
+            this.declaredAnnotations = declaredAnnotations;
+            this.rawAnnotations = rawAnnotations;
+            this.superAnnotations = superAnnotations;
+        }
+    }
+
+    // The root member arrays are held strongly: they are cheap compared to
+    // the cost of fetching them from the VM again. Parsed annotations and
+    // generic type information are each held by their own SoftReference
+    // and are rebuilt independently when cleared.
+    private volatile transient VolatileData<T> volatileData;
+
+    private <V> SoftReference<V> newTierReference(V value) {
+        return isReflectionDataPinned()
+               ? new PinnedReference<>(value)
+               : new SoftReference<>(value);
+    }
+
+    // Re-wraps the soft tiers built so far after the pin state changed
+    private void rewrapTiers() {
+        VolatileData<T> vd = volatileData;
+        SoftReference<AnnotationData> annotationData;
+        AnnotationData ad;
+        if (vd != null && (annotationData = vd.annotationData) != null &&
+            (ad = annotationData.get()) != null) {
+            vd.annotationData = newTierReference(ad);
+        }
+        SoftReference<ClassRepository> genericInfo;
+        ClassRepository gi;
+        if (vd != null && (genericInfo = vd.genericInfo) != null &&
+            (gi = genericInfo.get()) != null) {
+            vd.genericInfo = newTierReference(gi);
+        }
+        if (vd != null) {
+            // and the parsed annotations of the root members
+            RootMemberAccess access = ReflectionSecrets.getRootMemberAccess();
+            Field[] fields;
+            if ((fields = vd.declaredFields) != null) access.rewrapAnnotations(fields);
+            if ((fields = vd.declaredPublicFields) != null) access.rewrapAnnotations(fields);
+            Method[] methods;
+            if ((methods = vd.declaredMethods) != null) access.rewrapAnnotations(methods);
+            if ((methods = vd.declaredPublicMethods) != null) access.rewrapAnnotations(methods);
+            Constructor<T>[] constructors;
+            if ((constructors = vd.declaredConstructors) != null) access.rewrapAnnotations(constructors);
+            if ((constructors = vd.publicConstructors) != null) access.rewrapAnnotations(constructors);
+        }
+    }
+
+    // Whether this class is pinned; PIN_UNKNOWN until the first call to
+    // isReflectionDataPinned() matches it against sun.reflect.pinnedClasses
+    private volatile transient int pinState;
+    private static final int PIN_UNKNOWN = 0;
+    private static final int PIN_YES = 1;
+    private static final int PIN_NO = 2;
+
+    // Entries of sun.reflect.pinnedClasses: class names, or package name
+    // prefixes ending with '.'
+    private static String[] pinnedClasses = new String[0];
+
+    private static boolean matchesPinnedClasses(String name) {
+        for (String pinned : pinnedClasses) {
+            if (pinned.endsWith(".") ? name.startsWith(pinned) : name.equals(pinned)) {
+                return true;
+            }
+        }
+        return false;
     }
-    
-    private volatile transient SoftReference<VolatileData<T>> volatileData;
 
     // Incremented by the VM on each call to JVM TI RedefineClasses()
     // that redefines this class or a superclass.
@@ -2265,16 +2874,18 @@ public final
 
         while (true)
         {
-            SoftReference<VolatileData<T>> volatileData = this.volatileData;
+            VolatileData<T> volatileData = this.volatileData;
             int classRedefinedCount = this.classRedefinedCount;
-            VolatileData<T> vd;
-            if (volatileData != null && (vd = volatileData.get()) != null && vd.redefinedCount == classRedefinedCount) {
-                return vd;
+            if (volatileData != null && volatileData.redefinedCount == classRedefinedCount) {
+                return volatileData;
             }
-            // no SoftReference or cleared SoftReference or stale VolatileData
-            vd = new VolatileData<T>(classRedefinedCount);
+            // no VolatileData yet or stale VolatileData; in the latter case
+            // keep what was fetched so far to reconcile against
+            VolatileData<T> vd = new VolatileData<T>(
+                classRedefinedCount,
+                volatileData == null ? null : volatileData.snapshot());
             // try to CAS it...
-            if (VolatileData.compareAndSwap(this, volatileData, new SoftReference<VolatileData<T>>(vd))) {
+            if (VolatileData.compareAndSwap(this, volatileData, vd)) {
                 return vd;
             }
             // else retry
@@ -2284,24 +2895,37 @@ public final
     // Generic signature handling
     private native String getGenericSignature();
 
-    // Generic info repository; lazily initialized
-    private transient ClassRepository genericInfo;
-
     // accessor for factory
     private GenericsFactory getFactory() {
         // create scope and factory
         return CoreReflectionFactory.make(this, ClassScope.make(this));
     }
 
-    // accessor for generic info repository
+    // accessor for generic info repository, cached in VolatileData so
+    // that it is rebuilt after a redefinition of the class
     private ClassRepository getGenericInfo() {
-        // lazily initialize repository if necessary
-        if (genericInfo == null) {
-            // create and cache generic info repository
-            genericInfo = ClassRepository.make(getGenericSignature(),
-                                               getFactory());
+        VolatileData<T> vd = volatileData();
+        SoftReference<ClassRepository> genericInfo = vd == null ? null : vd.genericInfo;
+        ClassRepository gi;
+        if (genericInfo != null && (gi = genericInfo.get()) != null) {
+            return gi; //return cached repository
+        }
+        // create generic info repository
+        gi = ClassRepository.make(getGenericSignature(),
+                                  getFactory());
+        if (vd == null) {
+            return gi;
+        }
+        // publish it unless another thread has published a live one
+        SoftReference<ClassRepository> newInfo = newTierReference(gi);
+        while (!vd.casGenericInfo(genericInfo, newInfo)) {
+            ClassRepository other;
+            if ((genericInfo = vd.genericInfo) != null &&
+                (other = genericInfo.get()) != null) {
+                return other;
+            }
         }
-        return genericInfo; //return cached repository
+        return gi;
     }
 
     // Annotations handling
@@ -2326,14 +2950,40 @@ public final
             res = publicOnly ? vd.declaredPublicFields : vd.declaredFields;
             if (res != null) return res;
         }
-        // No cached value available; request value from VM
-        res = Reflection.filterFields(this, getDeclaredFields0(publicOnly));
-        if (vd != null) {
-            if (publicOnly) {
-                vd.declaredPublicFields = res;
-            } else {
-                vd.declaredFields = res;
+        // No cached value available; request value from VM unless another
+        // thread is already doing so
+        int slot = publicOnly ? VolatileData.DECLARED_PUBLIC_FIELDS : VolatileData.DECLARED_FIELDS;
+        boolean fetching = vd != null && vd.beginFetch(slot);
+        if (vd != null && !fetching) {
+            vd.awaitFetch(slot);
+            res = publicOnly ? vd.declaredPublicFields : vd.declaredFields;
+            if (res != null) return res;
+        }
+        try {
+            res = Reflection.filterFields(this, getDeclaredFields0(publicOnly));
+            if (vd != null) {
+                if (deduplicateAnnotations) {
+                    ReflectionSecrets.getRootMemberAccess().deduplicateAnnotations(res);
+                }
+                VolatileData<T> p = vd.previous;
+                Field[] old = null;
+                if (p != null) {
+                    old = publicOnly ? p.declaredPublicFields : p.declaredFields;
+                    res = reconcile(res, old);
+                }
+                if (offHeapAnnotations) {
+                    // must not be done to roots handed out already, such as
+                    // the old ones reconcile() kept
+                    ReflectionSecrets.getRootMemberAccess().moveAnnotationsOffHeap(freshRoots(res, old));
+                }
+                if (publicOnly) {
+                    vd.declaredPublicFields = res;
+                } else {
+                    vd.declaredFields = res;
+                }
             }
+        } finally {
+            if (fetching) vd.endFetch(slot);
         }
         return res;
     }
@@ -2352,20 +3002,19 @@ public final
 
         // No cached value available; compute value recursively.
         // Traverse in correct order for getField().
-        List<Field> fields = new ArrayList<>();
+        List<Field[]> inputs = new ArrayList<>();
         if (traversedInterfaces == null) {
             traversedInterfaces = new HashSet<>();
         }
 
         // Local fields
-        Field[] tmp = privateGetDeclaredFields(true);
-        addAll(fields, tmp);
+        inputs.add(privateGetDeclaredFields(true));
 
         // Direct superinterfaces, recursively
         for (Class<?> c : getInterfaces()) {
             if (!traversedInterfaces.contains(c)) {
                 traversedInterfaces.add(c);
-                addAll(fields, c.privateGetPublicFields(traversedInterfaces));
+                inputs.add(c.privateGetPublicFields(traversedInterfaces));
             }
         }
 
@@ -2373,24 +3022,153 @@ public final
         if (!isInterface()) {
             Class<?> c = getSuperclass();
             if (c != null) {
-                addAll(fields, c.privateGetPublicFields(traversedInterfaces));
+                inputs.add(c.privateGetPublicFields(traversedInterfaces));
             }
         }
 
-        res = new Field[fields.size()];
-        fields.toArray(res);
+        Object[] in = inputs.toArray();
+        VolatileData<T> p;
+        if (vd != null && (p = vd.previous) != null && p.publicFields != null &&
+            sameInputs(in, p.publicFieldsInputs)) {
+            res = p.publicFields;
+        } else {
+            List<Field> fields = new ArrayList<>();
+            for (Field[] tmp : inputs) {
+                addAll(fields, tmp);
+            }
+            res = new Field[fields.size()];
+            fields.toArray(res);
+        }
         if (vd != null) {
+            vd.publicFieldsInputs = in;
             vd.publicFields = res;
         }
         return res;
     }
 
+    // Whether an aggregate over the class hierarchy that was built before
+    // a redefinition from the given recorded inputs can be reused for the
+    // given current ones. Each input is a root member array of this class
+    // or an aggregate of a direct supertype. Such an array is only replaced
+    // when a redefinition actually changed it (see reconcile()), so its
+    // identity acts as an epoch of the part of the hierarchy it covers and
+    // no ancestor needs to be inspected here.
+    private static boolean sameInputs(Object[] inputs, Object[] recorded) {
+        if (recorded == null || recorded.length != inputs.length) {
+            return false;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i] != recorded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Replaces each freshly fetched root member that has the same
+    // declaration as a root fetched before the class was redefined with
+    // that older root, so that the accessors and parsed annotations cached
+    // on it survive redefinitions that only changed method bodies or other
+    // members. Returns the old array itself if no member changed.
+    private static <M extends Member> M[] reconcile(M[] fresh, M[] old) {
+        if (old == null) {
+            return fresh;
+        }
+        RootMemberAccess access = ReflectionSecrets.getRootMemberAccess();
+        boolean unchanged = fresh.length == old.length;
+        for (int i = 0; i < fresh.length; i++) {
+            M match = null;
+            // the VM reports members in declaration order, so look at the
+            // same position first
+            if (i < old.length && sameDeclaration(access, fresh[i], old[i])) {
+                match = old[i];
+            } else {
+                unchanged = false;
+                for (M m : old) {
+                    if (sameDeclaration(access, fresh[i], m)) {
+                        match = m;
+                        break;
+                    }
+                }
+            }
+            if (match != null) {
+                fresh[i] = match;
+            }
+        }
+        return unchanged ? old : fresh;
+    }
+
+    // Returns the roots of the given reconciled array that are not in the
+    // array of old roots it was reconciled with
+    private static <M extends Member> M[] freshRoots(M[] res, M[] old) {
+        if (old == null) {
+            return res;
+        }
+        Set<M> kept = Collections.newSetFromMap(new IdentityHashMap<M, Boolean>());
+        kept.addAll(Arrays.asList(old));
+        M[] fresh = res.clone();
+        int n = 0;
+        for (M m : res) {
+            if (!kept.contains(m)) {
+                fresh[n++] = m;
+            }
+        }
+        return Arrays.copyOf(fresh, n);
+    }
+
+    private static boolean sameDeclaration(RootMemberAccess access, Member a, Member b) {
+        if (a instanceof Field) {
+            return b instanceof Field && access.sameDeclaration((Field) a, (Field) b);
+        } else if (a instanceof Method) {
+            return b instanceof Method && access.sameDeclaration((Method) a, (Method) b);
+        } else {
+            return b instanceof Constructor &&
+                access.sameDeclaration((Constructor<?>) a, (Constructor<?>) b);
+        }
+    }
+
     private static void addAll(Collection<Field> c, Field[] o) {
         for (int i = 0; i < o.length; i++) {
             c.add(o[i]);
         }
     }
 
+    // Checked by getFieldCopier(), which hands out unchecked access to
+    // private and final fields just like setAccessible(true) does
+    private static final java.lang.reflect.ReflectPermission SUPPRESS_ACCESS_CHECKS_PERMISSION =
+        new java.lang.reflect.ReflectPermission("suppressAccessChecks");
+
+    // Returns a cached or freshly generated copier for the instance fields
+    // declared by this class and, optionally, all its superclasses.
+    private FieldCopier<T> privateGetFieldCopier(boolean includeSuperclasses) {
+        checkInitted();
+        FieldCopier<T> res;
+        VolatileData<T> vd = volatileData();
+        if (vd != null) {
+            res = includeSuperclasses ? vd.fieldCopier : vd.declaredFieldCopier;
+            if (res != null) return res;
+        }
+        // No cached value available; collect instance fields and generate
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = this; c != null; c = includeSuperclasses ? c.getSuperclass() : null) {
+            for (Field f : c.privateGetDeclaredFields(false)) {
+                if (!Modifier.isStatic(f.getModifiers())) {
+                    fields.add(f);
+                }
+            }
+        }
+        res = ReflectionSecrets.getRootMemberAccess().newFieldCopier(
+            this, fields.toArray(new Field[fields.size()]));
+        if (vd != null) {
+            if (includeSuperclasses) {
+                vd.fieldCopier = res;
+            } else {
+                vd.declaredFieldCopier = res;
+            }
+        }
+        return res;
+    }
+
 
     //
     //
@@ -2409,20 +3187,46 @@ public final
             res = publicOnly ? vd.publicConstructors : vd.declaredConstructors;
             if (res != null) return res;
         }
-        // No cached value available; request value from VM
-        if (isInterface()) {
-            @SuppressWarnings("unchecked")
-            Constructor<T>[] temporaryRes = (Constructor<T>[]) new Constructor<?>[0];
-            res = temporaryRes;
-        } else {
-            res = getDeclaredConstructors0(publicOnly);
+        // No cached value available; request value from VM unless another
+        // thread is already doing so
+        int slot = publicOnly ? VolatileData.PUBLIC_CONSTRUCTORS : VolatileData.DECLARED_CONSTRUCTORS;
+        boolean fetching = vd != null && vd.beginFetch(slot);
+        if (vd != null && !fetching) {
+            vd.awaitFetch(slot);
+            res = publicOnly ? vd.publicConstructors : vd.declaredConstructors;
+            if (res != null) return res;
         }
-        if (vd != null) {
-            if (publicOnly) {
-                vd.publicConstructors = res;
+        try {
+            if (isInterface()) {
+                @SuppressWarnings("unchecked")
+                Constructor<T>[] temporaryRes = (Constructor<T>[]) new Constructor<?>[0];
+                res = temporaryRes;
             } else {
-                vd.declaredConstructors = res;
+                res = getDeclaredConstructors0(publicOnly);
             }
+            if (vd != null) {
+                if (deduplicateAnnotations) {
+                    ReflectionSecrets.getRootMemberAccess().deduplicateAnnotations(res);
+                }
+                VolatileData<T> p = vd.previous;
+                Constructor<T>[] old = null;
+                if (p != null) {
+                    old = publicOnly ? p.publicConstructors : p.declaredConstructors;
+                    res = reconcile(res, old);
+                }
+                if (offHeapAnnotations) {
+                    // must not be done to roots handed out already, such as
+                    // the old ones reconcile() kept
+                    ReflectionSecrets.getRootMemberAccess().moveAnnotationsOffHeap(freshRoots(res, old));
+                }
+                if (publicOnly) {
+                    vd.publicConstructors = res;
+                } else {
+                    vd.declaredConstructors = res;
+                }
+            }
+        } finally {
+            if (fetching) vd.endFetch(slot);
         }
         return res;
     }
@@ -2444,61 +3248,125 @@ public final
             res = publicOnly ? vd.declaredPublicMethods : vd.declaredMethods;
             if (res != null) return res;
         }
-        // No cached value available; request value from VM
-        res = Reflection.filterMethods(this, getDeclaredMethods0(publicOnly));
-        if (useCaches) {
-            if (publicOnly) {
-                vd.declaredPublicMethods = res;
-            } else {
-                vd.declaredMethods = res;
+        // No cached value available; request value from VM unless another
+        // thread is already doing so
+        int slot = publicOnly ? VolatileData.DECLARED_PUBLIC_METHODS : VolatileData.DECLARED_METHODS;
+        boolean fetching = vd != null && vd.beginFetch(slot);
+        if (vd != null && !fetching) {
+            vd.awaitFetch(slot);
+            res = publicOnly ? vd.declaredPublicMethods : vd.declaredMethods;
+            if (res != null) return res;
+        }
+        try {
+            res = Reflection.filterMethods(this, getDeclaredMethods0(publicOnly));
+            if (vd != null) {
+                if (deduplicateAnnotations) {
+                    ReflectionSecrets.getRootMemberAccess().deduplicateAnnotations(res);
+                }
+                VolatileData<T> p = vd.previous;
+                Method[] old = null;
+                if (p != null) {
+                    old = publicOnly ? p.declaredPublicMethods : p.declaredMethods;
+                    res = reconcile(res, old);
+                }
+                if (offHeapAnnotations) {
+                    // must not be done to roots handed out already, such as
+                    // the old ones reconcile() kept
+                    ReflectionSecrets.getRootMemberAccess().moveAnnotationsOffHeap(freshRoots(res, old));
+                }
+                if (publicOnly) {
+                    vd.declaredPublicMethods = res;
+                } else {
+                    vd.declaredMethods = res;
+                }
             }
+        } finally {
+            if (fetching) vd.endFetch(slot);
         }
         return res;
     }
 
+    // Collects the methods of a class and its supertypes. Each method is
+    // stored along with a 64-bit key of its name and signature, so that
+    // most methods with another name or signature are skipped with one
+    // compare of the keys, without calling their getters.
     static class MethodArray {
         private Method[] methods;
+        private long[] hashes;
         private int length;
 
         MethodArray() {
-            methods = new Method[20];
+            this(20);
+        }
+
+        MethodArray(int initialCapacity) {
+            methods = new Method[initialCapacity];
+            hashes = new long[initialCapacity];
             length = 0;
         }
 
-        void add(Method m) {
+        // The hash of the return type in the high half and the hash of the
+        // name and parameter types cached on the root in the low half,
+        // neither of which needs copying anything out of the method. Equal
+        // for methods that equal each other or have the same name and
+        // signature, but only a filter: the methods must still be compared
+        // when their keys match.
+        static long signatureHash(Method m) {
+            return ((long) m.getReturnType().hashCode() << 32) |
+                   (ReflectionSecrets.getRootMemberAccess().getSignatureHash(m) & 0xFFFFFFFFL);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > methods.length) {
+                int newCapacity = Math.max(capacity, 2 * methods.length);
+                methods = Arrays.copyOf(methods, newCapacity);
+                hashes = Arrays.copyOf(hashes, newCapacity);
+            }
+        }
+
+        private void add(Method m, long hash) {
             if (length == methods.length) {
-                methods = Arrays.copyOf(methods, 2 * methods.length);
+                ensureCapacity(length + 1);
             }
-            methods[length++] = m;
+            methods[length] = m;
+            hashes[length++] = hash;
+        }
+
+        void add(Method m) {
+            add(m, signatureHash(m));
         }
 
         void addAll(Method[] ma) {
+            ensureCapacity(length + ma.length);
             for (int i = 0; i < ma.length; i++) {
                 add(ma[i]);
             }
         }
 
         void addAll(MethodArray ma) {
-            for (int i = 0; i < ma.length(); i++) {
-                add(ma.get(i));
-            }
+            ensureCapacity(length + ma.length);
+            System.arraycopy(ma.methods, 0, methods, length, ma.length);
+            System.arraycopy(ma.hashes, 0, hashes, length, ma.length);
+            length += ma.length;
         }
 
-        void addIfNotPresent(Method newMethod) {
+        private void addIfNotPresent(Method newMethod, long hash) {
             for (int i = 0; i < length; i++) {
-                Method m = methods[i];
-                if (m == newMethod || (m != null && m.equals(newMethod))) {
-                    return;
+                if (hashes[i] == hash) {
+                    Method m = methods[i];
+                    if (m == newMethod || (m != null && m.equals(newMethod))) {
+                        return;
+                    }
                 }
             }
-            add(newMethod);
+            add(newMethod, hash);
         }
 
         void addAllIfNotPresent(MethodArray newMethods) {
-            for (int i = 0; i < newMethods.length(); i++) {
-                Method m = newMethods.get(i);
+            for (int i = 0; i < newMethods.length; i++) {
+                Method m = newMethods.methods[i];
                 if (m != null) {
-                    addIfNotPresent(m);
+                    addIfNotPresent(m, newMethods.hashes[i]);
                 }
             }
         }
@@ -2511,15 +3379,23 @@ public final
             return methods[i];
         }
 
-        void removeByNameAndSignature(Method toRemove) {
-            for (int i = 0; i < length; i++) {
-                Method m = methods[i];
-                if (m != null &&
+        // Removes the methods with the same name and signature as the
+        // i-th method of the given array
+        void removeByNameAndSignature(MethodArray from, int i) {
+            Method toRemove = from.methods[i];
+            long hash = from.hashes[i];
+            Class<?>[] params = null;
+            for (int j = 0; j < length; j++) {
+                Method m = methods[j];
+                if (m != null && hashes[j] == hash &&
                     m.getReturnType() == toRemove.getReturnType() &&
-                    m.getName() == toRemove.getName() &&
-                    arrayContentsEq(m.getParameterTypes(),
-                                    toRemove.getParameterTypes())) {
-                    methods[i] = null;
+                    m.getName() == toRemove.getName()) {
+                    if (params == null) {
+                        params = toRemove.getParameterTypes();
+                    }
+                    if (arrayContentsEq(m.getParameterTypes(), params)) {
+                        methods[j] = null;
+                    }
                 }
             }
         }
@@ -2532,12 +3408,15 @@ public final
                 if (m != null) {
                     if (pos != newPos) {
                         methods[newPos] = m;
+                        hashes[newPos] = hashes[pos];
                     }
                     newPos++;
                 }
             }
+            length = newPos;
             if (newPos != methods.length) {
                 methods = Arrays.copyOf(methods, newPos);
+                hashes = Arrays.copyOf(hashes, newPos);
             }
         }
 
@@ -2560,50 +3439,68 @@ public final
         }
 
         // No cached value available; compute value recursively.
-        // Start by fetching public declared methods
-        MethodArray methods = new MethodArray();
-        {
-            Method[] tmp = privateGetDeclaredMethods(true);
-            methods.addAll(tmp);
+        // Start by fetching public declared methods, then those of the
+        // direct superinterfaces and the superclass
+        Class<?>[] interfaces = getInterfaces();
+        Class<?> superClass = isInterface() ? null : getSuperclass();
+        Object[] inputs = new Object[1 + interfaces.length + (superClass != null ? 1 : 0)];
+        inputs[0] = privateGetDeclaredMethods(true);
+        for (int i = 0; i < interfaces.length; i++) {
+            inputs[1 + i] = interfaces[i].privateGetPublicMethods();
+        }
+        if (superClass != null) {
+            inputs[inputs.length - 1] = superClass.privateGetPublicMethods();
         }
-        // Now recur over superclass and direct superinterfaces.
+        VolatileData<T> p;
+        if (vd != null && (p = vd.previous) != null && p.publicMethods != null &&
+            sameInputs(inputs, p.publicMethodsInputs)) {
+            res = p.publicMethods;
+            vd.publicMethodsInputs = inputs;
+            vd.publicMethods = res;
+            return res;
+        }
+
+        Method[] declared = (Method[]) inputs[0];
+        MethodArray methods = new MethodArray(declared.length);
+        methods.addAll(declared);
+        // Now merge superclass and direct superinterfaces.
         // Go over superinterfaces first so we can more easily filter
         // out concrete implementations inherited from superclasses at
         // the end.
-        MethodArray inheritedMethods = new MethodArray();
-        Class<?>[] interfaces = getInterfaces();
-        for (int i = 0; i < interfaces.length; i++) {
-            inheritedMethods.addAll(interfaces[i].privateGetPublicMethods());
+        int inheritedCount = 0;
+        for (int i = 1; i < inputs.length; i++) {
+            inheritedCount += ((Method[]) inputs[i]).length;
         }
-        if (!isInterface()) {
-            Class<?> c = getSuperclass();
-            if (c != null) {
-                MethodArray supers = new MethodArray();
-                supers.addAll(c.privateGetPublicMethods());
-                // Filter out concrete implementations of any
-                // interface methods
-                for (int i = 0; i < supers.length(); i++) {
-                    Method m = supers.get(i);
-                    if (m != null && !Modifier.isAbstract(m.getModifiers())) {
-                        inheritedMethods.removeByNameAndSignature(m);
-                    }
+        MethodArray inheritedMethods = new MethodArray(inheritedCount);
+        for (int i = 0; i < interfaces.length; i++) {
+            inheritedMethods.addAll((Method[]) inputs[1 + i]);
+        }
+        if (superClass != null) {
+            MethodArray supers = new MethodArray(inheritedCount);
+            supers.addAll((Method[]) inputs[inputs.length - 1]);
+            // Filter out concrete implementations of any
+            // interface methods
+            for (int i = 0; i < supers.length(); i++) {
+                Method m = supers.get(i);
+                if (m != null && !Modifier.isAbstract(m.getModifiers())) {
+                    inheritedMethods.removeByNameAndSignature(supers, i);
                 }
-                // Insert superclass's inherited methods before
-                // superinterfaces' to satisfy getMethod's search
-                // order
-                supers.addAll(inheritedMethods);
-                inheritedMethods = supers;
             }
+            // Insert superclass's inherited methods before
+            // superinterfaces' to satisfy getMethod's search
+            // order
+            supers.addAll(inheritedMethods);
+            inheritedMethods = supers;
         }
         // Filter out all local methods from inherited ones
         for (int i = 0; i < methods.length(); i++) {
-            Method m = methods.get(i);
-            inheritedMethods.removeByNameAndSignature(m);
+            inheritedMethods.removeByNameAndSignature(methods, i);
         }
         methods.addAllIfNotPresent(inheritedMethods);
         methods.compactAndTrim();
         res = methods.getArray();
         if (vd != null) {
+            vd.publicMethodsInputs = inputs;
             vd.publicMethods = res;
         }
         return res;
@@ -2663,9 +3560,12 @@ public final
     {
         Method res = null;
         String internedName = name.intern();
+        RootMemberAccess access = ReflectionSecrets.getRootMemberAccess();
+        int hash = access.signatureHash(internedName, parameterTypes);
         for (int i = 0; i < methods.length; i++) {
             Method m = methods[i];
-            if (m.getName() == internedName
+            if (access.getSignatureHash(m) == hash
+                && m.getName() == internedName
                 && arrayContentsEq(parameterTypes, m.getParameterTypes())
                 && (res == null
                     || res.getReturnType().isAssignableFrom(m.getReturnType())))
@@ -2716,8 +3616,11 @@ public final
                                         int which) throws NoSuchMethodException
     {
         Constructor<T>[] constructors = privateGetDeclaredConstructors((which == Member.PUBLIC));
+        RootMemberAccess access = ReflectionSecrets.getRootMemberAccess();
+        int hash = access.signatureHash(null, parameterTypes);
         for (Constructor<T> constructor : constructors) {
-            if (arrayContentsEq(parameterTypes,
+            if (access.getSignatureHash(constructor) == hash &&
+                arrayContentsEq(parameterTypes,
                                 constructor.getParameterTypes())) {
                 return getReflectionFactory().copyConstructor(constructor);
             }
@@ -2920,6 +3823,32 @@ public final
                         useCaches = false;
                     }
 
+                    val = System.getProperty("sun.reflect.pinnedClasses");
+                    if (val != null) {
+                        List<String> pinned = new ArrayList<>();
+                        for (String entry : val.split(",")) {
+                            entry = entry.trim();
+                            if (entry.endsWith(".*")) {
+                                // keep the trailing '.' as a package prefix
+                                entry = entry.substring(0, entry.length() - 1);
+                            }
+                            if (!entry.isEmpty()) {
+                                pinned.add(entry);
+                            }
+                        }
+                        pinnedClasses = pinned.toArray(new String[pinned.size()]);
+                    }
+
+                    val = System.getProperty("sun.reflect.offHeapAnnotations");
+                    if (val != null && val.equals("true")) {
+                        offHeapAnnotations = true;
+                    }
+
+                    val = System.getProperty("sun.reflect.deduplicateAnnotations");
+                    if (val != null && val.equals("false")) {
+                        deduplicateAnnotations = false;
+                    }
+
                     initted = true;
                     return null;
                 }
@@ -3086,32 +4015,56 @@ public final
 
 
     private Map<Class<? extends Annotation>, Annotation> privateGetAnnotations(boolean declaredOnly) {
-        Map<Class<? extends Annotation>, Annotation> res;
         VolatileData<T> vd = volatileData();
-        if (vd != null) {
-            res = declaredOnly ? vd.declaredAnnotations : vd.annotations;
-            if (res != null) return res;
+        SoftReference<AnnotationData> annotationData;
+        AnnotationData ad;
+        if (vd != null && (annotationData = vd.annotationData) != null &&
+            (ad = annotationData.get()) != null) {
+            return declaredOnly ? ad.declaredAnnotations : ad.annotations;
+        }
+
+        byte[] rawAnnotations = getRawAnnotations();
+        Map<Class<? extends Annotation>, Annotation> declaredAnnotations = null;
+        VolatileData<T> p;
+        AnnotationData previous = null;
+        if (vd != null && (p = vd.previous) != null &&
+            (annotationData = p.annotationData) != null &&
+            (ad = annotationData.get()) != null &&
+            Arrays.equals(rawAnnotations, ad.rawAnnotations)) {
+            // Unchanged by the redefinition. Constant pool indices in the
+            // raw bytes are stable, as the VM merges the new constant pool
+            // into the old one.
+            declaredAnnotations = ad.declaredAnnotations;
+            previous = ad;
+        } else {
+            declaredAnnotations = AnnotationParser.parseAnnotations(
+                rawAnnotations, getConstantPool(), this);
         }
-
-        Map<Class<? extends Annotation>, Annotation> declaredAnnotations = AnnotationParser.parseAnnotations(
-            getRawAnnotations(), getConstantPool(), this);
         Map<Class<? extends Annotation>, Annotation> annotations;
+        Map<Class<? extends Annotation>, Annotation> superAnnotations = null;
         Class<?> superClass = getSuperclass();
         if (superClass == null) {
             annotations = declaredAnnotations;
         } else {
-            annotations = new HashMap<>();
-            for (Map.Entry<Class<? extends Annotation>, Annotation> e : superClass.privateGetAnnotations(false).entrySet()) {
-                Class<? extends Annotation> annotationClass = e.getKey();
-                if (AnnotationType.getInstance(annotationClass).isInherited())
-                    annotations.put(annotationClass, e.getValue());
+            superAnnotations = superClass.privateGetAnnotations(false);
+            if (previous != null && previous.superAnnotations == superAnnotations) {
+                // neither this class nor any superclass changed its annotations
+                annotations = previous.annotations;
+            } else {
+                annotations = new HashMap<>();
+                for (Map.Entry<Class<? extends Annotation>, Annotation> e : superAnnotations.entrySet()) {
+                    Class<? extends Annotation> annotationClass = e.getKey();
+                    if (AnnotationType.getInstance(annotationClass).isInherited())
+                        annotations.put(annotationClass, e.getValue());
+                }
+                annotations.putAll(declaredAnnotations);
             }
-            annotations.putAll(declaredAnnotations);
         }
 
         if (vd != null) {
-            vd.annotations = annotations;
-            vd.declaredAnnotations = declaredAnnotations;
+            vd.annotationData = newTierReference(
+                new AnnotationData(annotations, declaredAnnotations, rawAnnotations,
+                                   superAnnotations));
         }
 
         return declaredOnly ? declaredAnnotations : annotations;
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.FieldAccessor;
+import sun.reflect.MethodAccessor;
+import sun.reflect.Reflection;
+
+/**
+ * Creates the accessors used by {@link Method}, {@link Constructor} and
+ * {@link Field}, layering inflation policies and alternative accessor
+ * engines on top of {@code sun.reflect.ReflectionFactory}.
+ *
+ * <p>By default the accessors of {@code ReflectionFactory} are used as they
+ * are: native at first, inflated to generated bytecode after
+ * {@code sun.reflect.inflationThreshold} invocations. Setting
+ * {@code sun.reflect.eagerInflation=true} wraps them so that a member which
+ * becomes hot ({@code sun.reflect.hotMethodThreshold} invocations counted
+ * across the root and all its copies, or {@link Method#markHot()}) is
+ * switched to an accessor generated by {@link AccessorGenerator}. The hot
+ * threshold should stay below {@code sun.reflect.inflationThreshold} so that
+ * the native accessor does not inflate on its own first.
+ *
+ * <p>With {@code sun.reflect.asyncInflation=true} accessors are wrapped that
+ * way too, also without eager inflation, and the generation is queued to
+ * the {@link BackgroundInflater} thread while native accessors keep serving
+ * invocations. Those are replaced by fresh ones before they reach
+ * {@code sun.reflect.inflationThreshold}, so that they do not generate
+ * accessors of their own while the request is pending.
+ *
+ * <p>With {@code sun.reflect.accessorEviction=true} every accessor is
+ * wrapped that way, also without eager inflation, and the root member
+ * keeps the wrapper rather than the generated accessor, so that
+ * {@link AccessorManager} can evict the generated delegate of members
+ * that have gone cold. Without eager inflation the wrapper inflates one
+ * invocation before {@code sun.reflect.inflationThreshold}, both here and
+ * for asynchronous inflation, so that it, not the native accessor, owns
+ * the generated delegate.
+ *
+ * <p>{@link Field} accessors are not affected by inflation: they are built
+ * on {@code sun.misc.Unsafe} from the start and never inflate.
+ *
+ * <p>Setting {@code sun.reflect.accessorEngine=methodHandle} selects
+ * {@link MethodHandleAccessors} instead for all three kinds of member;
+ * members it cannot serve fall back to the default engine above.
+ * {@code sun.reflect.accessorEngine=shared} selects
+ * {@link SharedDispatchAccessor} for methods and constructors, which shares
+ * one generated class among all members of the same erased shape.
+ */
+final class AccessorFactory {
+
+    private AccessorFactory() {}
+
+    //
+    // Configuration, read once system properties are available
+    //
+
+    private static boolean initted = false;
+    private static boolean eagerInflation = false;
+    private static boolean asyncInflation = false;
+    private static int hotMethodThreshold = 5;
+    // sun.reflect.ReflectionFactory's, which does not expose it
+    private static int inflationThreshold = 15;
+    private static boolean methodHandleEngine = false;
+    private static boolean sharedEngine = false;
+    private static boolean accessorEviction = false;
+
+    private static void checkInitted() {
+        if (initted) return;
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                public Void run() {
+                    // Reflection is used very early in the initialization
+                    // process, before command-line arguments have been
+                    // parsed. We assume that if System.out is non-null then
+                    // the System class has been fully initialized (see
+                    // java.lang.Class.checkInitted()).
+                    if (System.out == null) {
+                        // java.lang.System not yet fully initialized
+                        return null;
+                    }
+
+                    String val = System.getProperty("sun.reflect.eagerInflation");
+                    if (val != null && val.equals("true")) {
+                        eagerInflation = true;
+                    }
+                    val = System.getProperty("sun.reflect.asyncInflation");
+                    if (val != null && val.equals("true")) {
+                        asyncInflation = true;
+                    }
+                    val = System.getProperty("sun.reflect.accessorEviction");
+                    if (val != null && val.equals("true")) {
+                        accessorEviction = true;
+                    }
+                    val = System.getProperty("sun.reflect.accessorEngine");
+                    if (val != null) {
+                        if (val.equals("methodHandle")) {
+                            methodHandleEngine = true;
+                        } else if (val.equals("shared")) {
+                            sharedEngine = true;
+                        } else if (!val.equals("native")) {
+                            throw new RuntimeException("Unknown value of property sun.reflect.accessorEngine: " + val);
+                        }
+                    }
+                    val = System.getProperty("sun.reflect.inflationThreshold");
+                    if (val != null) {
+                        try {
+                            inflationThreshold = Integer.parseInt(val);
+                        } catch (NumberFormatException e) {
+                            throw new RuntimeException("Unable to parse property sun.reflect.inflationThreshold", e);
+                        }
+                    }
+                    val = System.getProperty("sun.reflect.hotMethodThreshold");
+                    if (val != null) {
+                        try {
+                            hotMethodThreshold = Integer.parseInt(val);
+                        } catch (NumberFormatException e) {
+                            throw new RuntimeException("Unable to parse property sun.reflect.hotMethodThreshold", e);
+                        }
+                    }
+
+                    initted = true;
+                    return null;
+                }
+            });
+    }
+
+    // Without eager inflation, inflating accessors only exist for
+    // asynchronous inflation or eviction; they then inflate just before
+    // their native delegate would, so that the generated accessor is theirs
+    static int hotMethodThreshold() {
+        return eagerInflation ? hotMethodThreshold : inflationThreshold - 1;
+    }
+
+    static int inflationThreshold() {
+        return inflationThreshold;
+    }
+
+    static boolean evictionEnabled() {
+        checkInitted();
+        return accessorEviction;
+    }
+
+    //
+    // Factory methods
+    //
+
+    static MethodAccessor newMethodAccessor(Method method) {
+        checkInitted();
+        if (methodHandleEngine) {
+            MethodAccessor accessor = MethodHandleAccessors.newMethodAccessor(method);
+            if (accessor != null) {
+                return accessor;
+            }
+        } else if (sharedEngine) {
+            MethodAccessor accessor = SharedDispatchAccessor.newMethodAccessor(method);
+            if (accessor != null) {
+                return accessor;
+            }
+        }
+        if (method.isHot()) {
+            MethodAccessor generated = AccessorGenerator.generateMethodAccessor(method);
+            if (generated != null) {
+                return generated;
+            }
+        }
+        MethodAccessor accessor = AccessibleObject.reflectionFactory.newMethodAccessor(method);
+        // A wrapper would be taken for the caller of a caller-sensitive
+        // method, which is left to the native accessor anyway
+        if ((eagerInflation || asyncInflation || accessorEviction) &&
+            !Reflection.isCallerSensitive(method)) {
+            InflatingMethodAccessor inflating = new InflatingMethodAccessor(method, accessor);
+            if (accessorEviction) {
+                AccessorManager.register(inflating);
+            }
+            accessor = inflating;
+        }
+        return accessor;
+    }
+
+    static ConstructorAccessor newConstructorAccessor(Constructor<?> constructor) {
+        checkInitted();
+        if (methodHandleEngine) {
+            ConstructorAccessor accessor =
+                MethodHandleAccessors.newConstructorAccessor(constructor);
+            if (accessor != null) {
+                return accessor;
+            }
+        } else if (sharedEngine) {
+            ConstructorAccessor accessor =
+                SharedDispatchAccessor.newConstructorAccessor(constructor);
+            if (accessor != null) {
+                return accessor;
+            }
+        }
+        ConstructorAccessor accessor =
+            AccessibleObject.reflectionFactory.newConstructorAccessor(constructor);
+        if (eagerInflation || asyncInflation || accessorEviction) {
+            InflatingConstructorAccessor inflating =
+                new InflatingConstructorAccessor(constructor, accessor);
+            if (accessorEviction) {
+                AccessorManager.register(inflating);
+            }
+            accessor = inflating;
+        }
+        return accessor;
+    }
+
+    static FieldAccessor newFieldAccessor(Field field, boolean overrideFinalCheck) {
+        checkInitted();
+        if (methodHandleEngine) {
+            FieldAccessor accessor =
+                MethodHandleAccessors.newFieldAccessor(field, overrideFinalCheck);
+            if (accessor != null) {
+                return accessor;
+            }
+        }
+        return AccessibleObject.reflectionFactory.newFieldAccessor(field, overrideFinalCheck);
+    }
+
+    /**
+     * Replaces the native stage of the given accessor with a generated one,
+     * either right away or, with {@code sun.reflect.asyncInflation}, on the
+     * background inflater thread.
+     */
+    static void inflate(final InflatingMethodAccessor accessor) {
+        checkInitted();
+        if (accessorEviction) {
+            AccessorManager.checkMemoryPressure();
+        }
+        if (asyncInflation) {
+            BackgroundInflater.submit(new Runnable() {
+                public void run() {
+                    accessor.generate();
+                }
+            });
+        } else {
+            accessor.generate();
+        }
+    }
+
+    static void inflate(final InflatingConstructorAccessor accessor) {
+        checkInitted();
+        if (accessorEviction) {
+            AccessorManager.checkMemoryPressure();
+        }
+        if (asyncInflation) {
+            BackgroundInflater.submit(new Runnable() {
+                public void run() {
+                    accessor.generate();
+                }
+            });
+        } else {
+            accessor.generate();
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.Label;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import jdk.internal.org.objectweb.asm.Type;
+import sun.misc.Unsafe;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.MethodAccessor;
+import sun.reflect.Reflection;
+import sun.reflect.misc.ReflectUtil;
+
+import static jdk.internal.org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates bytecode accessors for {@link Method}s and {@link Constructor}s.
+ * Unlike the accessors spun by {@code sun.reflect.MethodAccessorGenerator},
+ * these are defined as VM anonymous classes hosted in the member's declaring
+ * class, which gives them the declaring class's access rights without
+ * relying on {@code sun.reflect.MagicAccessorImpl}, and lets them be
+ * unloaded as soon as they become unreachable.
+ *
+ * <p>The generated code follows the same contract as the native accessors:
+ * a wrong receiver or argument results in an
+ * {@code IllegalArgumentException} (or {@code NullPointerException} for a
+ * null receiver of an instance method), primitive arguments are unboxed
+ * with widening conversions, and anything thrown by the target is wrapped
+ * in an {@code InvocationTargetException}.
+ */
+final class AccessorGenerator {
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String IAE = "java/lang/IllegalArgumentException";
+    private static final String NPE = "java/lang/NullPointerException";
+    private static final String ITE = "java/lang/reflect/InvocationTargetException";
+    private static final String THROWABLE = "java/lang/Throwable";
+
+    private AccessorGenerator() {}
+
+    /**
+     * Returns a newly generated accessor for the given method or null if the
+     * method can not be served by a generated accessor, in which case the
+     * caller should keep using the native one.
+     */
+    static MethodAccessor generateMethodAccessor(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!canHost(declaringClass) || Reflection.isCallerSensitive(method)) {
+            return null;
+        }
+        int modifiers = method.getModifiers();
+        boolean isStatic = Modifier.isStatic(modifiers);
+        boolean isInterface = declaringClass.isInterface();
+        int opcode;
+        if (isStatic) {
+            opcode = INVOKESTATIC;
+        } else if (isInterface) {
+            opcode = INVOKEINTERFACE;
+        } else if (Modifier.isPrivate(modifiers)) {
+            opcode = INVOKESPECIAL;
+        } else {
+            opcode = INVOKEVIRTUAL;
+        }
+        String owner = Type.getInternalName(declaringClass);
+        String className = owner + "$$MethodAccessor$" + counter.incrementAndGet();
+        Class<?>[] ptypes = method.getParameterTypes();
+        Class<?> rtype = method.getReturnType();
+
+        ClassWriter cw = newClassWriter();
+        cw.visit(V1_8, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, className, null,
+                 OBJECT, new String[] { "sun/reflect/MethodAccessor" });
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "invoke",
+            "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;",
+            null, new String[] { IAE, ITE });
+        mv.visitCode();
+        Label tryStart = new Label();
+        Label tryEnd = new Label();
+        Label handler = new Label();
+        mv.visitTryCatchBlock(tryStart, tryEnd, handler, THROWABLE);
+
+        // Receiver checks
+        if (!isStatic) {
+            Label nonNull = new Label();
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitJumpInsn(IFNONNULL, nonNull);
+            throwNew(mv, NPE, null);
+            mv.visitLabel(nonNull);
+            Label isInstance = new Label();
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(INSTANCEOF, owner);
+            mv.visitJumpInsn(IFNE, isInstance);
+            throwNew(mv, IAE, "object is not an instance of declaring class");
+            mv.visitLabel(isInstance);
+        }
+
+        int[] slots = emitArguments(mv, 2, 3, ptypes);
+
+        mv.visitLabel(tryStart);
+        if (!isStatic) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, owner);
+        }
+        loadArguments(mv, slots, ptypes);
+        mv.visitMethodInsn(opcode, owner, method.getName(),
+                           Type.getMethodDescriptor(method), isInterface);
+        mv.visitLabel(tryEnd);
+        emitBoxing(mv, rtype);
+        mv.visitInsn(ARETURN);
+
+        emitTargetExceptionHandler(mv, handler);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        return (MethodAccessor) instantiate(declaringClass, cw.toByteArray());
+    }
+
+    /**
+     * Returns a newly generated accessor for the given constructor or null
+     * if the constructor can not be served by a generated accessor.
+     */
+    static ConstructorAccessor generateConstructorAccessor(Constructor<?> constructor) {
+        Class<?> declaringClass = constructor.getDeclaringClass();
+        // Instantiation of abstract classes fails in the native accessor
+        if (Modifier.isAbstract(declaringClass.getModifiers()) ||
+            !canHost(declaringClass)) {
+            return null;
+        }
+        String owner = Type.getInternalName(declaringClass);
+        String className = owner + "$$ConstructorAccessor$" + counter.incrementAndGet();
+        Class<?>[] ptypes = constructor.getParameterTypes();
+
+        ClassWriter cw = newClassWriter();
+        cw.visit(V1_8, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, className, null,
+                 OBJECT, new String[] { "sun/reflect/ConstructorAccessor" });
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "newInstance",
+            "([Ljava/lang/Object;)Ljava/lang/Object;",
+            null, new String[] { "java/lang/InstantiationException", IAE, ITE });
+        mv.visitCode();
+        Label tryStart = new Label();
+        Label tryEnd = new Label();
+        Label handler = new Label();
+        mv.visitTryCatchBlock(tryStart, tryEnd, handler, THROWABLE);
+
+        int[] slots = emitArguments(mv, 1, 2, ptypes);
+
+        // The new instruction may raise ExceptionInInitializerError, which
+        // the native accessor does not wrap either, so it goes before the
+        // try block
+        mv.visitTypeInsn(NEW, owner);
+        mv.visitInsn(DUP);
+        mv.visitLabel(tryStart);
+        loadArguments(mv, slots, ptypes);
+        mv.visitMethodInsn(INVOKESPECIAL, owner, "<init>",
+                           Type.getConstructorDescriptor(constructor), false);
+        mv.visitLabel(tryEnd);
+        mv.visitInsn(ARETURN);
+
+        emitTargetExceptionHandler(mv, handler);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        return (ConstructorAccessor) instantiate(declaringClass, cw.toByteArray());
+    }
+
+    // Generated accessors are hosted in the declaring class. We don't do so
+    // for VM anonymous classes, which can't host other classes, nor for
+    // classes loaded by the bootstrap or the extension loader, which may
+    // declare caller-sensitive methods: those rely on the reflection frames
+    // being skipped when the caller is determined, which only holds for
+    // accessors generated by sun.reflect. Under a security manager
+    // resolving sun.reflect.MethodAccessor from the host's protection
+    // domain might be denied, so native accessors are kept there too.
+    static boolean canHost(final Class<?> declaringClass) {
+        if (System.getSecurityManager() != null ||
+            ReflectUtil.isVMAnonymousClass(declaringClass)) {
+            return false;
+        }
+        return !isBootOrExtensionClass(declaringClass);
+    }
+
+    // Returns true if the given class was defined by the bootstrap or the
+    // extension loader, which are the ones that can define caller-sensitive
+    // methods
+    static boolean isBootOrExtensionClass(final Class<?> c) {
+        return AccessController.doPrivileged(
+            new PrivilegedAction<Boolean>() {
+                public Boolean run() {
+                    ClassLoader cl = c.getClassLoader();
+                    if (cl == null) {
+                        return true;
+                    }
+                    // the extension loader is the last one below bootstrap
+                    ClassLoader ext = ClassLoader.getSystemClassLoader();
+                    while (ext.getParent() != null) {
+                        ext = ext.getParent();
+                    }
+                    return cl == ext;
+                }
+            });
+    }
+
+    // Returns true if the given accessor was generated by this class
+    static boolean isGenerated(Object accessor) {
+        return ReflectUtil.isVMAnonymousClass(accessor.getClass());
+    }
+
+    static ClassWriter newClassWriter() {
+        return new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+            // The generated code never depends on the precise type of a
+            // merged reference (everything is re-checked with checkcast
+            // before use), so don't make ASM load classes to compute it.
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return OBJECT;
+            }
+        };
+    }
+
+    static Object instantiate(Class<?> hostClass, byte[] classBytes) {
+        Class<?> accessorClass = unsafe.defineAnonymousClass(hostClass, classBytes, null);
+        try {
+            // generated accessors are stateless
+            return unsafe.allocateInstance(accessorClass);
+        } catch (InstantiationException e) {
+            throw new InternalError("Can't instantiate " + accessorClass.getName(), e);
+        }
+    }
+
+    /**
+     * Emits code checking the length of the argument array held in local
+     * {@code argsSlot} and converting every element to the corresponding
+     * parameter type, storing the results in fresh locals starting at
+     * {@code firstFreeSlot}. Returns the local slot of each argument.
+     */
+    static int[] emitArguments(MethodVisitor mv, int argsSlot, int firstFreeSlot,
+                               Class<?>[] ptypes) {
+        int n = ptypes.length;
+        Label lengthOk = new Label();
+        Label wrongLength = new Label();
+        // A null argument array is treated as an empty one
+        mv.visitVarInsn(ALOAD, argsSlot);
+        if (n == 0) {
+            mv.visitJumpInsn(IFNULL, lengthOk);
+            mv.visitVarInsn(ALOAD, argsSlot);
+            mv.visitInsn(ARRAYLENGTH);
+            mv.visitJumpInsn(IFEQ, lengthOk);
+        } else {
+            mv.visitJumpInsn(IFNULL, wrongLength);
+            mv.visitVarInsn(ALOAD, argsSlot);
+            mv.visitInsn(ARRAYLENGTH);
+            pushInt(mv, n);
+            mv.visitJumpInsn(IF_ICMPEQ, lengthOk);
+        }
+        mv.visitLabel(wrongLength);
+        throwNew(mv, IAE, "wrong number of arguments");
+        mv.visitLabel(lengthOk);
+
+        int tmpSlot = firstFreeSlot;
+        int nextSlot = firstFreeSlot + 1;
+        int[] slots = new int[n];
+        Label mismatch = new Label();
+        for (int i = 0; i < n; i++) {
+            Class<?> ptype = ptypes[i];
+            slots[i] = nextSlot;
+            nextSlot += (ptype == long.class || ptype == double.class) ? 2 : 1;
+
+            mv.visitVarInsn(ALOAD, argsSlot);
+            pushInt(mv, i);
+            mv.visitInsn(AALOAD);
+            mv.visitVarInsn(ASTORE, tmpSlot);
+            if (ptype.isPrimitive()) {
+                emitUnboxing(mv, tmpSlot, slots[i], ptype, mismatch);
+            } else {
+                String internalName = Type.getInternalName(ptype);
+                if (ptype != Object.class) {
+                    Label ok = new Label();
+                    mv.visitVarInsn(ALOAD, tmpSlot);
+                    mv.visitJumpInsn(IFNULL, ok);
+                    mv.visitVarInsn(ALOAD, tmpSlot);
+                    mv.visitTypeInsn(INSTANCEOF, internalName);
+                    mv.visitJumpInsn(IFEQ, mismatch);
+                    mv.visitLabel(ok);
+                }
+                mv.visitVarInsn(ALOAD, tmpSlot);
+                mv.visitVarInsn(ASTORE, slots[i]);
+            }
+        }
+        if (n > 0) {
+            Label converted = new Label();
+            mv.visitJumpInsn(GOTO, converted);
+            mv.visitLabel(mismatch);
+            throwNew(mv, IAE, "argument type mismatch");
+            mv.visitLabel(converted);
+        }
+        return slots;
+    }
+
+    /**
+     * Emits code loading the converted arguments onto the operand stack.
+     */
+    static void loadArguments(MethodVisitor mv, int[] slots, Class<?>[] ptypes) {
+        for (int i = 0; i < ptypes.length; i++) {
+            Class<?> ptype = ptypes[i];
+            if (ptype.isPrimitive()) {
+                mv.visitVarInsn(Type.getType(ptype).getOpcode(ILOAD), slots[i]);
+            } else {
+                mv.visitVarInsn(ALOAD, slots[i]);
+                if (ptype != Object.class) {
+                    mv.visitTypeInsn(CHECKCAST, Type.getInternalName(ptype));
+                }
+            }
+        }
+    }
+
+    // Wrapper types whose values may be converted to the given primitive
+    // type by an identity or widening primitive conversion (JLS 5.1.2),
+    // most specific first.
+    private static Class<?>[] widenableWrappers(Class<?> ptype) {
+        if (ptype == boolean.class)
+            return new Class<?>[] { Boolean.class };
+        if (ptype == byte.class)
+            return new Class<?>[] { Byte.class };
+        if (ptype == char.class)
+            return new Class<?>[] { Character.class };
+        if (ptype == short.class)
+            return new Class<?>[] { Short.class, Byte.class };
+        if (ptype == int.class)
+            return new Class<?>[] { Integer.class, Character.class, Short.class, Byte.class };
+        if (ptype == long.class)
+            return new Class<?>[] { Long.class, Integer.class, Character.class,
+                                    Short.class, Byte.class };
+        if (ptype == float.class)
+            return new Class<?>[] { Float.class, Long.class, Integer.class,
+                                    Character.class, Short.class, Byte.class };
+        return new Class<?>[] { Double.class, Float.class, Long.class, Integer.class,
+                                Character.class, Short.class, Byte.class };
+    }
+
+    private static Class<?> unwrap(Class<?> wrapper) {
+        if (wrapper == Boolean.class)   return boolean.class;
+        if (wrapper == Byte.class)      return byte.class;
+        if (wrapper == Character.class) return char.class;
+        if (wrapper == Short.class)     return short.class;
+        if (wrapper == Integer.class)   return int.class;
+        if (wrapper == Long.class)      return long.class;
+        if (wrapper == Float.class)     return float.class;
+        return double.class;
+    }
+
+    private static Class<?> wrap(Class<?> ptype) {
+        if (ptype == boolean.class) return Boolean.class;
+        if (ptype == byte.class)    return Byte.class;
+        if (ptype == char.class)    return Character.class;
+        if (ptype == short.class)   return Short.class;
+        if (ptype == int.class)     return Integer.class;
+        if (ptype == long.class)    return Long.class;
+        if (ptype == float.class)   return Float.class;
+        return Double.class;
+    }
+
+    private static void emitUnboxing(MethodVisitor mv, int tmpSlot, int targetSlot,
+                                     Class<?> ptype, Label mismatch) {
+        Label done = new Label();
+        for (Class<?> wrapper : widenableWrappers(ptype)) {
+            Class<?> source = unwrap(wrapper);
+            String internalName = Type.getInternalName(wrapper);
+            Label next = new Label();
+            mv.visitVarInsn(ALOAD, tmpSlot);
+            mv.visitTypeInsn(INSTANCEOF, internalName);
+            mv.visitJumpInsn(IFEQ, next);
+            mv.visitVarInsn(ALOAD, tmpSlot);
+            mv.visitTypeInsn(CHECKCAST, internalName);
+            mv.visitMethodInsn(INVOKEVIRTUAL, internalName, source.getName() + "Value",
+                               "()" + Type.getDescriptor(source), false);
+            emitWidening(mv, source, ptype);
+            mv.visitVarInsn(Type.getType(ptype).getOpcode(ISTORE), targetSlot);
+            mv.visitJumpInsn(GOTO, done);
+            mv.visitLabel(next);
+        }
+        // null or no applicable conversion
+        mv.visitJumpInsn(GOTO, mismatch);
+        mv.visitLabel(done);
+    }
+
+    private static void emitWidening(MethodVisitor mv, Class<?> from, Class<?> to) {
+        if (from == to) {
+            return;
+        }
+        // byte, short and char are already ints on the operand stack
+        boolean fromInt = from != long.class && from != float.class && from != double.class;
+        if (to == long.class) {
+            mv.visitInsn(I2L);
+        } else if (to == float.class) {
+            mv.visitInsn(fromInt ? I2F : L2F);
+        } else if (to == double.class) {
+            mv.visitInsn(fromInt ? I2D : (from == long.class) ? L2D : F2D);
+        }
+    }
+
+    /**
+     * Emits code converting the value of the given type on top of the
+     * operand stack to an Object (void results in null).
+     */
+    static void emitBoxing(MethodVisitor mv, Class<?> type) {
+        if (type == void.class) {
+            mv.visitInsn(ACONST_NULL);
+        } else if (type.isPrimitive()) {
+            Class<?> wrapper = wrap(type);
+            mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(wrapper), "valueOf",
+                               "(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapper),
+                               false);
+        }
+    }
+
+    /**
+     * Emits the handler wrapping anything thrown by the target into an
+     * {@code InvocationTargetException}.
+     */
+    static void emitTargetExceptionHandler(MethodVisitor mv, Label handler) {
+        mv.visitLabel(handler);
+        // stack: throwable
+        mv.visitTypeInsn(NEW, ITE);
+        mv.visitInsn(DUP_X1);
+        mv.visitInsn(SWAP);
+        mv.visitMethodInsn(INVOKESPECIAL, ITE, "<init>",
+                           "(Ljava/lang/Throwable;)V", false);
+        mv.visitInsn(ATHROW);
+    }
+
+    static void throwNew(MethodVisitor mv, String exceptionClass, String message) {
+        mv.visitTypeInsn(NEW, exceptionClass);
+        mv.visitInsn(DUP);
+        if (message == null) {
+            mv.visitMethodInsn(INVOKESPECIAL, exceptionClass, "<init>", "()V", false);
+        } else {
+            mv.visitLdcInsn(message);
+            mv.visitMethodInsn(INVOKESPECIAL, exceptionClass, "<init>",
+                               "(Ljava/lang/String;)V", false);
+        }
+        mv.visitInsn(ATHROW);
+    }
+
+    static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else {
+            mv.visitIntInsn(SIPUSH, value);
+        }
+    }
+}
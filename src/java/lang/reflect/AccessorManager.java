@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages the lifecycle of the accessors backing reflective invocation of
+ * {@link Method}s and {@link Constructor}s.
+ *
+ * <p>An accessor, once inflated to generated bytecode, normally lives as
+ * long as the root member it is attached to, even if the member was only
+ * invoked a few times at startup. When the system property
+ * {@code sun.reflect.accessorEviction} is set to {@code true}, accessors
+ * instead record the <em>epoch</em> in which they were last used, and
+ * accessors that have not been used for a number of epochs can be
+ * <em>evicted</em>: they drop their generated delegate (allowing its class
+ * to be unloaded) and start over with a native one, to be inflated again
+ * if the member becomes hot again. Eviction has no effect on the semantics
+ * of reflective invocation.
+ *
+ * <p>Epochs are advanced by {@link #advanceEpoch()}, and automatically
+ * when the garbage collector starts clearing soft references, at which
+ * point accessors not used since the previous epoch are evicted. Accessors
+ * of {@link Field}s are built on {@code sun.misc.Unsafe} and never
+ * generate classes, so they are not managed.
+ *
+ * @since 1.8
+ */
+public final class AccessorManager {
+
+    private AccessorManager() {}
+
+    // Current epoch, read by every managed invocation
+    static volatile int epoch;
+
+    private static final ConcurrentLinkedQueue<WeakReference<EvictableAccessor>> accessors =
+        new ConcurrentLinkedQueue<>();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final AtomicLong regenerations = new AtomicLong();
+
+    // Cleared by the GC under memory pressure
+    private static volatile SoftReference<Object> canary = new SoftReference<>(new Object());
+
+    /**
+     * Returns true if accessor eviction has been enabled with the system
+     * property {@code sun.reflect.accessorEviction}.
+     *
+     * @return true if accessors record their last use and can be evicted
+     */
+    public static boolean isEvictionEnabled() {
+        return AccessorFactory.evictionEnabled();
+    }
+
+    /**
+     * Returns the current epoch.
+     *
+     * @return the current epoch
+     */
+    public static int currentEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Starts a new epoch. Accessors used from now on are recorded as used
+     * in the new epoch.
+     *
+     * @return the new epoch
+     */
+    public static synchronized int advanceEpoch() {
+        return ++epoch;
+    }
+
+    /**
+     * Evicts the accessors that have not been used during the last
+     * {@code idleEpochs} epochs, including the current one.
+     *
+     * @param idleEpochs the number of epochs an accessor must have been
+     *        idle for to be evicted
+     * @return the number of accessors evicted
+     * @exception IllegalArgumentException if {@code idleEpochs} is not
+     *            positive
+     */
+    public static int evictColdAccessors(int idleEpochs) {
+        if (idleEpochs <= 0)
+            throw new IllegalArgumentException("idleEpochs: " + idleEpochs);
+        int current = epoch;
+        int evicted = 0;
+        for (Iterator<WeakReference<EvictableAccessor>> i = accessors.iterator(); i.hasNext(); ) {
+            EvictableAccessor accessor = i.next().get();
+            if (accessor == null) {
+                i.remove();
+            } else if (accessor.evict(current, idleEpochs)) {
+                evicted++;
+            }
+        }
+        evictions.addAndGet(evicted);
+        return evicted;
+    }
+
+    /**
+     * Returns the number of accessors evicted so far.
+     *
+     * @return the total number of evictions
+     */
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of accessors that were inflated again after
+     * having been evicted.
+     *
+     * @return the total number of regenerations
+     */
+    public static long getRegenerationCount() {
+        return regenerations.get();
+    }
+
+    /**
+     * Returns the number of accessors currently managed.
+     *
+     * @return the number of live managed accessors
+     */
+    public static int getManagedAccessorCount() {
+        int count = 0;
+        for (WeakReference<EvictableAccessor> ref : accessors) {
+            if (ref.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //
+    // Package-private hooks used by the accessors
+    //
+
+    static void register(EvictableAccessor accessor) {
+        accessors.add(new WeakReference<>(accessor));
+        checkMemoryPressure();
+    }
+
+    static void regenerated() {
+        regenerations.incrementAndGet();
+    }
+
+    // Evicts the accessors not used since the previous epoch if soft
+    // references have been cleared since the last check. Called whenever
+    // an accessor is created or inflated, which is where class metadata
+    // is about to be allocated.
+    static void checkMemoryPressure() {
+        if (canary.get() != null) {
+            return;
+        }
+        synchronized (AccessorManager.class) {
+            if (canary.get() != null) {
+                return;
+            }
+            canary = new SoftReference<>(new Object());
+        }
+        evictColdAccessors(1);
+        advanceEpoch();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports on the deduplication of the raw annotation attributes of
+ * {@link Field}s, {@link Method}s and {@link Constructor}s.
+ *
+ * <p>When the members declared by a class are fetched from the virtual
+ * machine, each comes with its own copy of its raw annotations, parameter
+ * annotations and annotation default, even where these are byte for byte
+ * identical, as they often are within one class: members carrying the
+ * same annotation with the same values, or parameters without
+ * annotations. Such arrays are replaced by a single shared one before
+ * the members are cached. The raw attributes refer to the constant pool
+ * of their class, so only arrays of members of the same class are
+ * shared. Deduplication can be turned off with the system property
+ * {@code sun.reflect.deduplicateAnnotations=false}.
+ *
+ * <p>Independently, members of the same class whose raw annotations are
+ * identical share their parsed annotations: only the first of them is
+ * parsed, and all of them return the same annotation instances.
+ *
+ * @since 1.8
+ */
+public final class AnnotationDeduplication {
+
+    private AnnotationDeduplication() {}
+
+    private static final AtomicLong deduplicatedArrays = new AtomicLong();
+    private static final AtomicLong savedBytes = new AtomicLong();
+    private static final AtomicLong reusedParses = new AtomicLong();
+
+    /**
+     * Returns the number of raw annotation arrays that have been replaced
+     * by an identical one shared with another member.
+     *
+     * @return the number of arrays deduplicated so far
+     */
+    public static long getDeduplicatedArrayCount() {
+        return deduplicatedArrays.get();
+    }
+
+    /**
+     * Returns an estimate of the heap memory saved by deduplication, being
+     * the size of the arrays replaced, including their object headers.
+     * Arrays that have since become unreachable are still counted.
+     *
+     * @return the number of bytes saved so far
+     */
+    public static long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    /**
+     * Returns the number of times the declared annotations of a member
+     * were not parsed because those of another member of the same class
+     * with identical raw annotations could be shared.
+     *
+     * @return the number of parses avoided so far
+     */
+    public static long getReusedParseCount() {
+        return reusedParses.get();
+    }
+
+    static void reusedParse() {
+        reusedParses.incrementAndGet();
+    }
+
+    /**
+     * Maps raw annotation arrays of one class to the first array with the
+     * same contents. Not thread-safe; used by one fetch.
+     */
+    static final class Table {
+        private final Map<ByteBuffer, byte[]> arrays = new HashMap<>();
+        private long deduplicated, saved;
+
+        byte[] canonicalize(byte[] a) {
+            if (a == null) {
+                return null;
+            }
+            ByteBuffer key = ByteBuffer.wrap(a);
+            byte[] canonical = arrays.get(key);
+            if (canonical == null) {
+                arrays.put(key, a);
+                return a;
+            }
+            if (canonical != a) {
+                deduplicated++;
+                // array header plus contents, padded to 8 bytes
+                saved += 16 + ((a.length + 7) & ~7);
+            }
+            return canonical;
+        }
+
+        // Adds what this table saved to the totals
+        void report() {
+            if (deduplicated > 0) {
+                deduplicatedArrays.addAndGet(deduplicated);
+                savedBytes.addAndGet(saved);
+            }
+        }
+    }
+
+    static void deduplicate(Field[] roots) {
+        Table table = new Table();
+        for (Field f : roots) {
+            f.deduplicateAnnotations(table);
+        }
+        table.report();
+    }
+
+    static void deduplicate(Executable[] roots) {
+        Table table = new Table();
+        for (Executable e : roots) {
+            e.deduplicateAnnotations(table);
+        }
+        table.report();
+    }
+}
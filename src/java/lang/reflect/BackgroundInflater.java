@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A single daemon thread that generates accessors queued by
+ * {@link AccessorFactory#inflate} when {@code sun.reflect.asyncInflation}
+ * is set. Request threads only enqueue and keep going through the native
+ * accessor; the generated accessor is published to the root member once it
+ * has been defined. Each accessor is queued at most once at a time (see
+ * the {@code inflationRequested} flags of the inflating accessors), so the
+ * queue stays bounded by the number of reflectively invoked members.
+ */
+final class BackgroundInflater extends Thread {
+
+    private static final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private static volatile boolean started = false;
+
+    private BackgroundInflater(ThreadGroup group) {
+        super(group, "Reflection Accessor Inflater");
+    }
+
+    static void submit(Runnable generation) {
+        queue.add(generation);
+        if (!started) {
+            start0();
+        }
+    }
+
+    private static synchronized void start0() {
+        if (started) return;
+        // Set before the thread starts, so that a worker exiting right
+        // away cannot have its reset overwritten here
+        started = true;
+        boolean ok = false;
+        try {
+            AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                    public Void run() {
+                        // Run in the system thread group, like the other
+                        // JDK-internal daemon threads
+                        ThreadGroup tg = Thread.currentThread().getThreadGroup();
+                        for (ThreadGroup tgn = tg;
+                             tgn != null;
+                             tg = tgn, tgn = tg.getParent());
+                        Thread worker = new BackgroundInflater(tg);
+                        worker.setDaemon(true);
+                        worker.setContextClassLoader(null);
+                        worker.start();
+                        return null;
+                    }
+                });
+            ok = true;
+        } finally {
+            if (!ok) {
+                // Could not start one; the next submission tries again
+                started = false;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Runnable generation;
+                try {
+                    generation = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                try {
+                    generation.run();
+                } catch (LinkageError | RuntimeException e) {
+                    // The member keeps its native accessor, which is
+                    // correct, only slower
+                }
+            }
+        } finally {
+            // Any other error, OutOfMemoryError included, ends this thread
+            // like it would any other. Its generation was abandoned by the
+            // accessor, which requests again later; the others still queued
+            // get a new thread now, as their members will not resubmit.
+            started = false;
+            if (!queue.isEmpty()) {
+                start0();
+            }
+        }
+    }
+}
@@ -33,6 +33,9 @@ import sun.reflect.generics.factory.GenericsFactory;
 import sun.reflect.generics.scope.ConstructorScope;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.AnnotationFormatError;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * {@code Constructor} provides information about, and access to, a single
@@ -62,8 +65,10 @@ public final class Constructor<T> extends Executable {
     private int                 modifiers;
     // Generics and annotations support
     private transient String    signature;
-    // generic info repository; lazily initialized
-    private transient ConstructorRepository genericInfo;
+    // generic info repository; lazily initialized, and shared by a root
+    // with its copies unless the constructor declares type variables,
+    // which must resolve to the copy itself
+    private transient volatile ConstructorRepository genericInfo;
     private byte[]              annotations;
     private byte[]              parameterAnnotations;
 
@@ -77,16 +82,22 @@ public final class Constructor<T> extends Executable {
     // Accessor for generic info repository
     @Override
     ConstructorRepository getGenericInfo() {
+        ConstructorRepository genericInfo = this.genericInfo;
         // lazily initialize repository if necessary
         if (genericInfo == null) {
-            // create and cache generic info repository
-            genericInfo =
-                ConstructorRepository.make(getSignature(),
-                                           getFactory());
+            // use the root's, or create and cache generic info repository
+            genericInfo = root != null && !declaresTypeParameters()
+                ? root.getGenericInfo()
+                : ConstructorRepository.make(getSignature(), getFactory());
+            genericInfo = GenericInfoPublisher.publish(this, genericInfo);
         }
         return genericInfo; //return cached repository
     }
 
+    private boolean declaresTypeParameters() {
+        return signature != null && signature.startsWith("<");
+    }
+
     private volatile ConstructorAccessor constructorAccessor;
     // For sharing of ConstructorAccessors. This branching structure
     // is currently only two levels deep (i.e., one root Constructor
@@ -116,6 +127,29 @@ public final class Constructor<T> extends Executable {
         this.parameterAnnotations = parameterAnnotations;
     }
 
+    // Used by java.lang.Class, via RootMemberAccess, to keep this root
+    // after a redefinition of the declaring class if the VM reports a
+    // constructor with the same declaration
+    boolean sameDeclaration(Constructor<?> other) {
+        return modifiers == other.modifiers &&
+            Arrays.equals(parameterTypes, other.parameterTypes) &&
+            Arrays.equals(exceptionTypes, other.exceptionTypes) &&
+            Objects.equals(signature, other.signature) &&
+            sameRawAnnotations(other, OffHeapAnnotations.ANNOTATIONS) &&
+            sameRawAnnotations(other, OffHeapAnnotations.PARAMETER_ANNOTATIONS);
+    }
+
+    // Compares raw annotations without copying them from off-heap
+    private boolean sameRawAnnotations(Constructor<?> other, int which) {
+        return Objects.equals(rawAnnotationsView(which), other.rawAnnotationsView(which));
+    }
+
+    private ByteBuffer rawAnnotationsView(int which) {
+        return OffHeapAnnotations.view(offHeapAnnotations,
+                                       which == OffHeapAnnotations.ANNOTATIONS ? annotations : parameterAnnotations,
+                                       which);
+    }
+
     /**
      * Package-private routine (exposed to java.lang.Class via
      * ReflectAccess) which returns a copy of this Constructor. The copy's
@@ -135,20 +169,51 @@ public final class Constructor<T> extends Executable {
                                                signature,
                                                annotations,
                                                parameterAnnotations);
+        res.offHeapAnnotations = offHeapAnnotations;
+        res.signatureHash = signatureHash();
         res.root = this;
-        // Might as well eagerly propagate this if already present
+        // Might as well eagerly propagate these if already present
+        if (!declaresTypeParameters())
+            res.genericInfo = genericInfo;
         res.constructorAccessor = constructorAccessor;
         return res;
     }
 
+    @Override
+    int computeSignatureHash() {
+        return signatureHash(null, parameterTypes);
+    }
+
     @Override
     boolean hasGenericInformation() {
         return (getSignature() != null);
     }
 
+    @Override
+    Executable getRoot() {
+        return root;
+    }
+
     @Override
     byte[] getAnnotationBytes() {
-        return annotations;
+        return getRawAnnotations();
+    }
+
+    @Override
+    void deduplicateAnnotations(AnnotationDeduplication.Table table) {
+        annotations = table.canonicalize(annotations);
+        parameterAnnotations = table.canonicalize(parameterAnnotations);
+    }
+
+    @Override
+    void moveAnnotationsOffHeap(OffHeapAnnotations.Batch batch) {
+        if (offHeapAnnotations == null) {
+            OffHeapAnnotations o = batch.store(annotations, parameterAnnotations);
+            if (o != null) {
+                offHeapAnnotations = o;
+                annotations = parameterAnnotations = null;
+            }
+        }
     }
 
     /**
@@ -241,7 +306,8 @@ public final class Constructor<T> extends Executable {
     public boolean equals(Object obj) {
         if (obj != null && obj instanceof Constructor) {
             Constructor<?> other = (Constructor<?>)obj;
-            if (getDeclaringClass() == other.getDeclaringClass()) {
+            if (getDeclaringClass() == other.getDeclaringClass()
+                && signatureHash() == other.signatureHash()) {
                 return equalParamTypes(parameterTypes, other.parameterTypes);
             }
         }
@@ -273,6 +339,8 @@ public final class Constructor<T> extends Executable {
      * constructor has default (package) access.
      */
     public String toString() {
+        if (root != null)
+            return root.toString();
         return sharedToString(Modifier.constructorModifiers(),
                               parameterTypes,
                               exceptionTypes);
@@ -318,6 +386,8 @@ public final class Constructor<T> extends Executable {
      */
     @Override
     public String toGenericString() {
+        if (root != null)
+            return root.toGenericString();
         return sharedToGenericString(Modifier.constructorModifiers());
     }
 
@@ -428,7 +498,7 @@ public final class Constructor<T> extends Executable {
             constructorAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newConstructorAccessor(this);
+            tmp = AccessorFactory.newConstructorAccessor(this);
             setConstructorAccessor(tmp);
         }
 
@@ -460,11 +530,13 @@ public final class Constructor<T> extends Executable {
     }
 
     byte[] getRawAnnotations() {
-        return annotations;
+        OffHeapAnnotations o = offHeapAnnotations;
+        return o != null ? o.bytes(OffHeapAnnotations.ANNOTATIONS) : annotations;
     }
 
     byte[] getRawParameterAnnotations() {
-        return parameterAnnotations;
+        OffHeapAnnotations o = offHeapAnnotations;
+        return o != null ? o.bytes(OffHeapAnnotations.PARAMETER_ANNOTATIONS) : parameterAnnotations;
     }
 
 
@@ -26,6 +26,7 @@
 package java.lang.reflect;
 
 import java.lang.annotation.*;
+import java.lang.ref.SoftReference;
 import java.util.Map;
 import sun.reflect.annotation.AnnotationParser;
 import sun.reflect.generics.repository.ConstructorRepository;
@@ -48,6 +49,48 @@ public abstract class Executable extends AccessibleObject
      */
     abstract byte[] getAnnotationBytes();
 
+    // The root this executable was copied from, or null for a root
+    abstract Executable getRoot();
+
+    // The raw annotations of a root executable and its copies once moved
+    // off-heap, then the byte arrays of the subclasses are null
+    OffHeapAnnotations offHeapAnnotations;
+
+    // Moves the raw annotations of this root executable off-heap
+    abstract void moveAnnotationsOffHeap(OffHeapAnnotations.Batch batch);
+
+    // Shares the raw annotations of this fresh root executable with
+    // identical ones of other executables of its class
+    abstract void deduplicateAnnotations(AnnotationDeduplication.Table table);
+
+    // Hash of the name (null for constructors) and parameter types, equal
+    // for executables that have the same name and parameter types. The VM
+    // creates roots without running a constructor, so it is computed on
+    // first use, then propagated to copies. 0 means not computed yet.
+    int signatureHash;
+
+    final int signatureHash() {
+        int h = signatureHash;
+        if (h == 0) {
+            signatureHash = h = computeSignatureHash();
+        }
+        return h;
+    }
+
+    abstract int computeSignatureHash();
+
+    // Used by java.lang.Class, via RootMemberAccess, to hash the name and
+    // parameter types looked up. A null array or element is allowed.
+    static int signatureHash(String name, Class<?>[] parameterTypes) {
+        int h = name == null ? 0 : name.hashCode();
+        if (parameterTypes != null) {
+            for (Class<?> p : parameterTypes) {
+                h = 31 * h + (p == null ? 0 : p.hashCode());
+            }
+        }
+        return h == 0 ? 1 : h;
+    }
+
     /**
      * Does the Executable have generic information.
      */
@@ -91,26 +134,46 @@ public abstract class Executable extends AccessibleObject
         }
     }
 
+    // The strings rendered by toString() and toGenericString() of a root,
+    // held softly as they can be rendered again on demand. Copies render
+    // through their root. A root depends only on its declaration, which a
+    // redefinition keeps the root for only if unchanged, so the strings
+    // never go stale.
+    private volatile transient SoftReference<String> toStringCache;
+    private volatile transient SoftReference<String> toGenericStringCache;
+
     String sharedToString(int modifierMask,
                           Class<?>[] parameterTypes,
                           Class<?>[] exceptionTypes) {
-        try {
-            StringBuilder sb = new StringBuilder();
-
-            printModifiersIfNonzero(sb, modifierMask);
-            specificToStringHeader(sb);
-
-            sb.append('(');
-            separateWithCommas(parameterTypes, sb);
-            sb.append(')');
-            if (exceptionTypes.length > 0) {
-                sb.append(" throws ");
-                separateWithCommas(exceptionTypes, sb);
+        SoftReference<String> ref = toStringCache;
+        String s;
+        if (ref == null || (s = ref.get()) == null) {
+            try {
+                s = renderToString(modifierMask, parameterTypes, exceptionTypes);
+            } catch (Exception e) {
+                return "<" + e + ">";
             }
-            return sb.toString();
-        } catch (Exception e) {
-            return "<" + e + ">";
+            toStringCache = new SoftReference<>(s);
+        }
+        return s;
+    }
+
+    private String renderToString(int modifierMask,
+                                  Class<?>[] parameterTypes,
+                                  Class<?>[] exceptionTypes) {
+        StringBuilder sb = new StringBuilder();
+
+        printModifiersIfNonzero(sb, modifierMask);
+        specificToStringHeader(sb);
+
+        sb.append('(');
+        separateWithCommas(parameterTypes, sb);
+        sb.append(')');
+        if (exceptionTypes.length > 0) {
+            sb.append(" throws ");
+            separateWithCommas(exceptionTypes, sb);
         }
+        return sb.toString();
     }
 
     /**
@@ -120,56 +183,66 @@ public abstract class Executable extends AccessibleObject
     abstract void specificToStringHeader(StringBuilder sb);
 
     String sharedToGenericString(int modifierMask) {
-        try {
-            StringBuilder sb = new StringBuilder();
-
-            printModifiersIfNonzero(sb, modifierMask);
-
-            TypeVariable<?>[] typeparms = getTypeParameters();
-            if (typeparms.length > 0) {
-                boolean first = true;
-                sb.append('<');
-                for(TypeVariable<?> typeparm: typeparms) {
-                    if (!first)
-                        sb.append(',');
-                    // Class objects can't occur here; no need to test
-                    // and call Class.getName().
-                    sb.append(typeparm.toString());
-                    first = false;
-                }
-                sb.append("> ");
+        SoftReference<String> ref = toGenericStringCache;
+        String s;
+        if (ref == null || (s = ref.get()) == null) {
+            try {
+                s = renderToGenericString(modifierMask);
+            } catch (Exception e) {
+                return "<" + e + ">";
             }
+            toGenericStringCache = new SoftReference<>(s);
+        }
+        return s;
+    }
+
+    private String renderToGenericString(int modifierMask) {
+        StringBuilder sb = new StringBuilder();
+
+        printModifiersIfNonzero(sb, modifierMask);
 
-            specificToGenericStringHeader(sb);
-
-            sb.append('(');
-            Type[] params = getGenericParameterTypes();
-            for (int j = 0; j < params.length; j++) {
-                String param = (params[j] instanceof Class)?
-                    Field.getTypeName((Class)params[j]):
-                    (params[j].toString());
-                if (isVarArgs() && (j == params.length - 1)) // replace T[] with T...
-                    param = param.replaceFirst("\\[\\]$", "...");
-                sb.append(param);
-                if (j < (params.length - 1))
+        TypeVariable<?>[] typeparms = getTypeParameters();
+        if (typeparms.length > 0) {
+            boolean first = true;
+            sb.append('<');
+            for(TypeVariable<?> typeparm: typeparms) {
+                if (!first)
                     sb.append(',');
+                // Class objects can't occur here; no need to test
+                // and call Class.getName().
+                sb.append(typeparm.toString());
+                first = false;
             }
-            sb.append(')');
-            Type[] exceptions = getGenericExceptionTypes();
-            if (exceptions.length > 0) {
-                sb.append(" throws ");
-                for (int k = 0; k < exceptions.length; k++) {
-                    sb.append((exceptions[k] instanceof Class)?
-                              ((Class)exceptions[k]).getName():
-                              exceptions[k].toString());
-                    if (k < (exceptions.length - 1))
-                        sb.append(',');
-                }
+            sb.append("> ");
+        }
+
+        specificToGenericStringHeader(sb);
+
+        sb.append('(');
+        Type[] params = getGenericParameterTypes();
+        for (int j = 0; j < params.length; j++) {
+            String param = (params[j] instanceof Class)?
+                Field.getTypeName((Class)params[j]):
+                (params[j].toString());
+            if (isVarArgs() && (j == params.length - 1)) // replace T[] with T...
+                param = param.replaceFirst("\\[\\]$", "...");
+            sb.append(param);
+            if (j < (params.length - 1))
+                sb.append(',');
+        }
+        sb.append(')');
+        Type[] exceptions = getGenericExceptionTypes();
+        if (exceptions.length > 0) {
+            sb.append(" throws ");
+            for (int k = 0; k < exceptions.length; k++) {
+                sb.append((exceptions[k] instanceof Class)?
+                          ((Class)exceptions[k]).getName():
+                          exceptions[k].toString());
+                if (k < (exceptions.length - 1))
+                    sb.append(',');
             }
-            return sb.toString();
-        } catch (Exception e) {
-            return "<" + e + ">";
         }
+        return sb.toString();
     }
 
     /**
@@ -347,6 +420,10 @@ public abstract class Executable extends AccessibleObject
     Annotation[][] sharedGetParameterAnnotations(Class<?>[] parameterTypes,
                                                  byte[] parameterAnnotations) {
         int numParameters = parameterTypes.length;
+        OffHeapAnnotations o = offHeapAnnotations;
+        if (o != null)
+            // a transient copy, for the parser
+            parameterAnnotations = o.bytes(OffHeapAnnotations.PARAMETER_ANNOTATIONS);
         if (parameterAnnotations == null)
             return new Annotation[numParameters][0];
 
@@ -378,17 +455,42 @@ public abstract class Executable extends AccessibleObject
         return AnnotationParser.toArray(declaredAnnotations());
     }
 
-    private volatile transient Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+    // Parsed declared annotations, held softly as they can be re-parsed on
+    // demand, unless the declaring class is pinned. Members without
+    // annotations share a reference to the empty map, which is never
+    // cleared.
+    private volatile transient SoftReference<Map<Class<? extends Annotation>, Annotation>> declaredAnnotations;
+    private static final SoftReference<Map<Class<? extends Annotation>, Annotation>> NO_ANNOTATIONS =
+        new SoftReference<>(java.util.Collections.<Class<? extends Annotation>, Annotation>emptyMap());
 
     private Map<Class<? extends Annotation>, Annotation> declaredAnnotations() {
-        Map<Class<? extends Annotation>, Annotation> declaredAnnotations = this.declaredAnnotations;
-        if (declaredAnnotations == null) {
-            this.declaredAnnotations = declaredAnnotations = AnnotationParser.parseAnnotations(
-                getAnnotationBytes(),
-                sun.misc.SharedSecrets.getJavaLangAccess().
-                getConstantPool(getDeclaringClass()),
-                getDeclaringClass());
+        Executable root = getRoot();
+        if (root != null)
+            return root.declaredAnnotations();
+
+        SoftReference<Map<Class<? extends Annotation>, Annotation>> ref = this.declaredAnnotations;
+        Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+        if (ref == null || (declaredAnnotations = ref.get()) == null) {
+            OffHeapAnnotations o = offHeapAnnotations;
+            declaredAnnotations = o != null
+                ? ParsedAnnotationCache.parse(
+                    o.buffer(OffHeapAnnotations.ANNOTATIONS), getDeclaringClass())
+                : ParsedAnnotationCache.parse(getAnnotationBytes(), getDeclaringClass());
+            this.declaredAnnotations = declaredAnnotations.isEmpty()
+                ? NO_ANNOTATIONS
+                : ParsedAnnotationCache.newReference(declaredAnnotations, getDeclaringClass());
         }
         return declaredAnnotations;
     }
+
+    // Re-wraps the parsed annotations of this root after the pin state of
+    // its declaring class changed
+    void rewrapAnnotations() {
+        SoftReference<Map<Class<? extends Annotation>, Annotation>> ref = this.declaredAnnotations;
+        Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+        if (ref != null && ref != NO_ANNOTATIONS && (declaredAnnotations = ref.get()) != null) {
+            this.declaredAnnotations =
+                ParsedAnnotationCache.newReference(declaredAnnotations, getDeclaringClass());
+        }
+    }
 }
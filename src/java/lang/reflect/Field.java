@@ -32,7 +32,10 @@ import sun.reflect.generics.factory.CoreReflectionFactory;
 import sun.reflect.generics.factory.GenericsFactory;
 import sun.reflect.generics.scope.ClassScope;
 import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Objects;
 import sun.reflect.annotation.AnnotationParser;
 
 
@@ -67,9 +70,12 @@ class Field extends AccessibleObject implements Member {
     private int                 modifiers;
     // Generics and annotations support
     private transient String    signature;
-    // generic info repository; lazily initialized
-    private transient FieldRepository genericInfo;
+    // generic info repository; lazily initialized, and shared by a root
+    // with its copies as it resolves type variables in the class scope
+    private transient volatile FieldRepository genericInfo;
     private byte[]              annotations;
+    // The annotations once moved off-heap, then annotations is null
+    private OffHeapAnnotations  offHeapAnnotations;
     // Cached field accessor created without override
     private FieldAccessor fieldAccessor;
     // Cached field accessor created with override
@@ -78,6 +84,10 @@ class Field extends AccessibleObject implements Member {
     // currently only two levels deep (i.e., one root Field and
     // potentially many Field objects pointing to it.)
     private Field               root;
+    // The strings rendered by toString() and toGenericString() of a root,
+    // held softly; copies render through their root
+    private volatile transient SoftReference<String> toStringCache;
+    private volatile transient SoftReference<String> toGenericStringCache;
 
     // Generics infrastructure
 
@@ -92,11 +102,14 @@ class Field extends AccessibleObject implements Member {
 
     // Accessor for generic info repository
     private FieldRepository getGenericInfo() {
+        FieldRepository genericInfo = this.genericInfo;
         // lazily initialize repository if necessary
         if (genericInfo == null) {
-            // create and cache generic info repository
-            genericInfo = FieldRepository.make(getGenericSignature(),
-                                               getFactory());
+            // use the root's, or create and cache generic info repository
+            genericInfo = root != null
+                ? root.getGenericInfo()
+                : FieldRepository.make(getGenericSignature(), getFactory());
+            genericInfo = GenericInfoPublisher.publish(this, genericInfo);
         }
         return genericInfo; //return cached repository
     }
@@ -124,6 +137,40 @@ class Field extends AccessibleObject implements Member {
         this.annotations = annotations;
     }
 
+    // Used by java.lang.Class, via RootMemberAccess, to keep this root
+    // after a redefinition of the declaring class if the VM reports a
+    // field with the same declaration
+    boolean sameDeclaration(Field other) {
+        return name.equals(other.name) &&
+            modifiers == other.modifiers &&
+            type == other.type &&
+            Objects.equals(signature, other.signature) &&
+            Objects.equals(rawAnnotationsView(OffHeapAnnotations.ANNOTATIONS),
+                           other.rawAnnotationsView(OffHeapAnnotations.ANNOTATIONS));
+    }
+
+    // The raw annotations, without copying them from off-heap
+    private ByteBuffer rawAnnotationsView(int which) {
+        return OffHeapAnnotations.view(offHeapAnnotations, annotations, which);
+    }
+
+    // Shares the raw annotations of this fresh root field with identical
+    // ones of other fields of its class
+    void deduplicateAnnotations(AnnotationDeduplication.Table table) {
+        annotations = table.canonicalize(annotations);
+    }
+
+    // Moves the raw annotations of this root field off-heap
+    void moveAnnotationsOffHeap(OffHeapAnnotations.Batch batch) {
+        if (offHeapAnnotations == null) {
+            OffHeapAnnotations o = batch.store(annotations);
+            if (o != null) {
+                offHeapAnnotations = o;
+                annotations = null;
+            }
+        }
+    }
+
     /**
      * Package-private routine (exposed to java.lang.Class via
      * ReflectAccess) which returns a copy of this Field. The copy's
@@ -138,8 +185,10 @@ class Field extends AccessibleObject implements Member {
         // objects be fabricated for each reflective call on Class
         // objects.)
         Field res = new Field(clazz, name, type, modifiers, slot, signature, annotations);
+        res.offHeapAnnotations = offHeapAnnotations;
         res.root = this;
-        // Might as well eagerly propagate this if already present
+        // Might as well eagerly propagate these if already present
+        res.genericInfo = genericInfo;
         res.fieldAccessor = fieldAccessor;
         res.overrideFieldAccessor = overrideFieldAccessor;
         return res;
@@ -283,11 +332,20 @@ class Field extends AccessibleObject implements Member {
      * {@code transient}, {@code volatile}.
      */
     public String toString() {
-        int mod = getModifiers();
-        return (((mod == 0) ? "" : (Modifier.toString(mod) + " "))
-            + getTypeName(getType()) + " "
-            + getTypeName(getDeclaringClass()) + "."
-            + getName());
+        if (root != null)
+            return root.toString();
+
+        SoftReference<String> ref = toStringCache;
+        String s;
+        if (ref == null || (s = ref.get()) == null) {
+            int mod = getModifiers();
+            s = (((mod == 0) ? "" : (Modifier.toString(mod) + " "))
+                + getTypeName(getType()) + " "
+                + getTypeName(getDeclaringClass()) + "."
+                + getName());
+            toStringCache = new SoftReference<>(s);
+        }
+        return s;
     }
 
     /**
@@ -310,13 +368,22 @@ class Field extends AccessibleObject implements Member {
      * @since 1.5
      */
     public String toGenericString() {
-        int mod = getModifiers();
-        Type fieldType = getGenericType();
-        return (((mod == 0) ? "" : (Modifier.toString(mod) + " "))
-            +  ((fieldType instanceof Class) ?
-                getTypeName((Class)fieldType): fieldType.toString())+ " "
-            + getTypeName(getDeclaringClass()) + "."
-            + getName());
+        if (root != null)
+            return root.toGenericString();
+
+        SoftReference<String> ref = toGenericStringCache;
+        String s;
+        if (ref == null || (s = ref.get()) == null) {
+            int mod = getModifiers();
+            Type fieldType = getGenericType();
+            s = (((mod == 0) ? "" : (Modifier.toString(mod) + " "))
+                +  ((fieldType instanceof Class) ?
+                    getTypeName((Class)fieldType): fieldType.toString())+ " "
+                + getTypeName(getDeclaringClass()) + "."
+                + getName());
+            toGenericStringCache = new SoftReference<>(s);
+        }
+        return s;
     }
 
     /**
@@ -946,7 +1013,7 @@ class Field extends AccessibleObject implements Member {
                 fieldAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newFieldAccessor(this, overrideFinalCheck);
+            tmp = AccessorFactory.newFieldAccessor(this, overrideFinalCheck);
             setFieldAccessor(tmp, overrideFinalCheck);
         }
 
@@ -997,7 +1064,7 @@ class Field extends AccessibleObject implements Member {
                     dimensions++;
                     cl = cl.getComponentType();
                 }
-                StringBuffer sb = new StringBuffer();
+                StringBuilder sb = new StringBuilder();
                 sb.append(cl.getName());
                 for (int i = 0; i < dimensions; i++) {
                     sb.append("[]");
@@ -1027,19 +1094,41 @@ class Field extends AccessibleObject implements Member {
         return AnnotationParser.toArray(declaredAnnotations());
     }
 
-    private volatile transient Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+    // Parsed declared annotations, held softly as they can be re-parsed on
+    // demand, unless the declaring class is pinned. Members without
+    // annotations share a reference to the empty map, which is never
+    // cleared.
+    private volatile transient SoftReference<Map<Class<? extends Annotation>, Annotation>> declaredAnnotations;
+    private static final SoftReference<Map<Class<? extends Annotation>, Annotation>> NO_ANNOTATIONS =
+        new SoftReference<>(java.util.Collections.<Class<? extends Annotation>, Annotation>emptyMap());
 
     private Map<Class<? extends Annotation>, Annotation> declaredAnnotations() {
         if (root != null)
             return root.declaredAnnotations();
 
-        Map<Class<? extends Annotation>, Annotation> declaredAnnotations = this.declaredAnnotations;
-        if (declaredAnnotations == null) {
-            this.declaredAnnotations = declaredAnnotations = AnnotationParser.parseAnnotations(
-                annotations, sun.misc.SharedSecrets.getJavaLangAccess().
-                getConstantPool(getDeclaringClass()),
-                getDeclaringClass());
+        SoftReference<Map<Class<? extends Annotation>, Annotation>> ref = this.declaredAnnotations;
+        Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+        if (ref == null || (declaredAnnotations = ref.get()) == null) {
+            OffHeapAnnotations o = offHeapAnnotations;
+            declaredAnnotations = o != null
+                ? ParsedAnnotationCache.parse(
+                    o.buffer(OffHeapAnnotations.ANNOTATIONS), getDeclaringClass())
+                : ParsedAnnotationCache.parse(annotations, getDeclaringClass());
+            this.declaredAnnotations = declaredAnnotations.isEmpty()
+                ? NO_ANNOTATIONS
+                : ParsedAnnotationCache.newReference(declaredAnnotations, getDeclaringClass());
         }
         return declaredAnnotations;
     }
+
+    // Re-wraps the parsed annotations of this root after the pin state of
+    // its declaring class changed
+    void rewrapAnnotations() {
+        SoftReference<Map<Class<? extends Annotation>, Annotation>> ref = this.declaredAnnotations;
+        Map<Class<? extends Annotation>, Annotation> declaredAnnotations;
+        if (ref != null && ref != NO_ANNOTATIONS && (declaredAnnotations = ref.get()) != null) {
+            this.declaredAnnotations =
+                ParsedAnnotationCache.newReference(declaredAnnotations, getDeclaringClass());
+        }
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+/**
+ * A {@code FieldCopier} copies the values of all instance fields declared
+ * by a class (and optionally by its superclasses) from one instance of that
+ * class to another in a single call.
+ *
+ * <p>Copiers are obtained from {@link java.lang.Class#getFieldCopier(boolean)}
+ * and are backed by a generated method, so copying an object with many
+ * fields costs one call rather than a reflective get and set per field.
+ * The copy is shallow: reference fields are copied by reference. Final
+ * fields are copied as well, and volatile fields are read and written
+ * with volatile semantics.
+ *
+ * @param <T> the class whose instance fields are copied
+ *
+ * @see java.lang.Class#getFieldCopier(boolean)
+ * @since 1.8
+ */
+public abstract class FieldCopier<T> {
+    private final Class<T> declaringClass;
+
+    // Package-private, so that no copiers but those generated by
+    // FieldCopierGenerator can exist; they copy private and final fields
+    // without any access check
+    FieldCopier(Class<T> declaringClass) {
+        this.declaringClass = declaringClass;
+    }
+
+    /**
+     * Returns the {@code Class} object for which this copier was created.
+     *
+     * @return the class whose instance fields are copied
+     */
+    public final Class<T> getDeclaringClass() {
+        return declaringClass;
+    }
+
+    /**
+     * Copies the values of all covered instance fields from {@code src}
+     * to {@code dest}.
+     *
+     * @param src the object to copy field values from
+     * @param dest the object to copy field values to
+     * @exception NullPointerException if {@code src} or {@code dest}
+     *            is null
+     * @exception IllegalArgumentException if {@code src} or {@code dest}
+     *            is not an instance of the class for which this copier
+     *            was created
+     */
+    public final void copy(T src, T dest) {
+        if (src == null || dest == null)
+            throw new NullPointerException();
+        if (!declaringClass.isInstance(src) || !declaringClass.isInstance(dest))
+            throw new IllegalArgumentException(
+                "object is not an instance of " + declaringClass.getName());
+        copyFields(src, dest);
+    }
+
+    // Copies the field values. Implemented by the generated subclasses;
+    // both arguments have already been checked to be instances of the
+    // declaring class.
+    abstract void copyFields(Object src, Object dest);
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import jdk.internal.org.objectweb.asm.Type;
+import sun.misc.Unsafe;
+
+import static jdk.internal.org.objectweb.asm.Opcodes.*;
+
+/**
+ * Spins {@link FieldCopier} subclasses whose {@code copyFields} method is a
+ * straight-line sequence of {@code Unsafe} get/put pairs, one per field,
+ * with the field offsets embedded as constants. The classes are defined as
+ * VM anonymous classes hosted in this class, so they can be unloaded as soon
+ * as the copier becomes unreachable. Being in this package is what lets
+ * them extend {@code FieldCopier}, whose constructor is package-private.
+ */
+final class FieldCopierGenerator {
+
+    // used by the generated code via getstatic
+    static final Unsafe unsafe = Unsafe.getUnsafe();
+
+    private static final String UNSAFE = "sun/misc/Unsafe";
+    private static final String FIELD_COPIER = "java/lang/reflect/FieldCopier";
+    private static final String GENERATOR = "java/lang/reflect/FieldCopierGenerator";
+    private static final String NAME_PREFIX = GENERATOR + "$$Copier$";
+
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private FieldCopierGenerator() {}
+
+    /**
+     * Generates a copier for the given non-static "root" fields of
+     * {@code clazz} or its superclasses.
+     */
+    static <T> FieldCopier<T> generate(Class<T> clazz, Field[] fields) {
+        String className = NAME_PREFIX + counter.incrementAndGet();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC,
+                 className, null, FIELD_COPIER, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>",
+                                          "(Ljava/lang/Class;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKESPECIAL, FIELD_COPIER, "<init>",
+                           "(Ljava/lang/Class;)V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(0, "copyFields",
+                            "(Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        for (Field f : fields) {
+            Class<?> type = f.getType();
+            String kind = type.isPrimitive()
+                ? Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1)
+                : "Object";
+            if (Modifier.isVolatile(f.getModifiers())) {
+                kind += "Volatile";
+            }
+            String desc = type.isPrimitive()
+                ? Type.getDescriptor(type)
+                : "Ljava/lang/Object;";
+            Long offset = unsafe.objectFieldOffset(f);
+
+            // unsafe.putX(dest, offset, unsafe.getX(src, offset))
+            mv.visitFieldInsn(GETSTATIC, GENERATOR,
+                              "unsafe", "L" + UNSAFE + ";");
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitLdcInsn(offset);
+            mv.visitFieldInsn(GETSTATIC, GENERATOR,
+                              "unsafe", "L" + UNSAFE + ";");
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(offset);
+            mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "get" + kind,
+                               "(Ljava/lang/Object;J)" + desc, false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE, "put" + kind,
+                               "(Ljava/lang/Object;J" + desc + ")V", false);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        Class<?> copierClass = unsafe.defineAnonymousClass(
+            FieldCopierGenerator.class, cw.toByteArray(), null);
+        try {
+            Constructor<?> ctor = copierClass.getDeclaredConstructor(Class.class);
+            @SuppressWarnings("unchecked")
+            FieldCopier<T> copier = (FieldCopier<T>) ctor.newInstance(clazz);
+            return copier;
+        } catch (NoSuchMethodException | InstantiationException |
+                 IllegalAccessException | InvocationTargetException e) {
+            throw new InternalError("Can't instantiate field copier for " + clazz.getName(), e);
+        }
+    }
+}
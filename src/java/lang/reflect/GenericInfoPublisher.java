@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import sun.misc.Unsafe;
+import sun.reflect.ReflectionSecrets;
+import sun.reflect.generics.repository.ConstructorRepository;
+import sun.reflect.generics.repository.FieldRepository;
+import sun.reflect.generics.repository.MethodRepository;
+
+/**
+ * Publishes the lazily created generic info repositories of fields,
+ * methods and constructors by CAS: the first repository published for a
+ * member is the one every thread gets, and it is published safely. The
+ * offsets are looked up on first use, long after the reflection classes
+ * have been initialized, and straight from the VM like the offsets used
+ * by {@code Class}, bypassing the reflection caches.
+ */
+final class GenericInfoPublisher {
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static final long fieldOffset = offset(Field.class);
+    private static final long methodOffset = offset(Method.class);
+    private static final long constructorOffset = offset(Constructor.class);
+
+    private GenericInfoPublisher() {}
+
+    private static long offset(Class<?> c) {
+        Field f = ReflectionSecrets.getRawFieldAccess().searchDeclaredField(c, "genericInfo");
+        if (f == null) throw new Error("No genericInfo field found in " + c.getName());
+        return unsafe.objectFieldOffset(f);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R publish(Object member, long offset, R repository) {
+        if (unsafe.compareAndSwapObject(member, offset, null, repository)) {
+            return repository;
+        }
+        return (R) unsafe.getObjectVolatile(member, offset);
+    }
+
+    static FieldRepository publish(Field f, FieldRepository repository) {
+        return publish(f, fieldOffset, repository);
+    }
+
+    static MethodRepository publish(Method m, MethodRepository repository) {
+        return publish(m, methodOffset, repository);
+    }
+
+    static ConstructorRepository publish(Constructor<?> c, ConstructorRepository repository) {
+        return publish(c, constructorOffset, repository);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import sun.reflect.MethodAccessor;
+
+/**
+ * Accessor shared by a root {@link Method} and all its copies while the
+ * method is served by the native accessor. It counts invocations and, once
+ * the method is hot, has {@link AccessorFactory} generate a bytecode
+ * accessor which then replaces the native delegate here and is published
+ * to the root. With accessor eviction the root keeps this accessor, which
+ * records its last use for {@link AccessorManager}.
+ */
+final class InflatingMethodAccessor implements MethodAccessor, EvictableAccessor {
+    private final Method method;
+    private volatile MethodAccessor delegate;
+    // Not volatile; like the native accessor's counter, an occasional
+    // lost update only delays inflation.
+    private int numInvocations;
+    private volatile boolean inflationRequested;
+    // Set from the request until generate() has run, while the native
+    // delegate must not inflate on its own
+    private volatile boolean inflationPending;
+    // Racy too; an epoch is a coarse measure anyway
+    private int lastUsedEpoch = AccessorManager.epoch;
+    // Whether the delegate was generated by generate(); guarded by this,
+    // like evicted
+    private boolean generatedDelegate;
+    private boolean evicted;
+
+    InflatingMethodAccessor(Method method, MethodAccessor delegate) {
+        this.method = method;
+        this.delegate = delegate;
+    }
+
+    public Object invoke(Object obj, Object[] args)
+        throws IllegalArgumentException, InvocationTargetException
+    {
+        int epoch = AccessorManager.epoch;
+        if (lastUsedEpoch != epoch) {
+            lastUsedEpoch = epoch;
+        }
+        if (!inflationRequested) {
+            if (++numInvocations > AccessorFactory.hotMethodThreshold()) {
+                inflate();
+            }
+        } else if (inflationPending &&
+                   ++numInvocations > AccessorFactory.inflationThreshold()) {
+            renewNativeDelegate();
+        }
+        return delegate.invoke(obj, args);
+    }
+
+    // Requests generation of a bytecode accessor, at most once unless
+    // the generation is abandoned.
+    void inflate() {
+        if (!inflationRequested) {
+            inflationRequested = true;
+            inflationPending = true;
+            AccessorFactory.inflate(this);
+        }
+    }
+
+    // Replaces the native delegate with a fresh one before it would
+    // generate an accessor of its own next to the one requested. Waits
+    // for a generation that is already running, and then keeps its result.
+    private synchronized void renewNativeDelegate() {
+        if (inflationPending) {
+            delegate = AccessibleObject.reflectionFactory.newMethodAccessor(method);
+        }
+        // counting this invocation, which goes to the new delegate
+        numInvocations = 1;
+    }
+
+    // Generates the bytecode accessor and publishes it. Called on the
+    // invoking thread or on the background inflater thread.
+    synchronized void generate() {
+        MethodAccessor generated;
+        try {
+            generated = AccessorGenerator.generateMethodAccessor(method);
+        } catch (LinkageError | RuntimeException e) {
+            // the method is not generatable; keep the native delegate
+            throw e;
+        } catch (Error e) {
+            // Abandoned, e.g. on OutOfMemoryError, which also ends the
+            // background inflater thread; request again once hot again
+            numInvocations = 0;
+            inflationRequested = false;
+            throw e;
+        } finally {
+            inflationPending = false;
+        }
+        if (generated != null) {
+            delegate = generated;
+            generatedDelegate = true;
+            if (evicted) {
+                AccessorManager.regenerated();
+            }
+            if (!AccessorFactory.evictionEnabled()) {
+                method.setMethodAccessor(generated);
+            }
+        }
+    }
+
+    public synchronized boolean evict(int epoch, int idleEpochs) {
+        // a native delegate has no class to unload
+        if (!generatedDelegate || epoch - lastUsedEpoch < idleEpochs) {
+            return false;
+        }
+        delegate = AccessibleObject.reflectionFactory.newMethodAccessor(method);
+        generatedDelegate = false;
+        numInvocations = 0;
+        evicted = true;
+        inflationRequested = false;
+        return true;
+    }
+}
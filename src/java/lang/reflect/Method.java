@@ -36,6 +36,9 @@ import sun.reflect.annotation.AnnotationParser;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.AnnotationFormatError;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import sun.reflect.ReflectionSecrets;
 
 /**
  * A {@code Method} provides information about, and access to, a single method
@@ -69,17 +72,26 @@ public final class Method extends Executable {
     private int                 modifiers;
     // Generics and annotations support
     private transient String              signature;
-    // generic info repository; lazily initialized
-    private transient MethodRepository genericInfo;
+    // generic info repository; lazily initialized, and shared by a root
+    // with its copies unless the method declares type variables, which
+    // must resolve to the copy itself
+    private transient volatile MethodRepository genericInfo;
     private byte[]              annotations;
     private byte[]              parameterAnnotations;
     private byte[]              annotationDefault;
     private volatile MethodAccessor methodAccessor;
+    // Set on the root by markHot() to request a generated accessor
+    // right away
+    private volatile boolean    hot;
     // For sharing of MethodAccessors. This branching structure is
     // currently only two levels deep (i.e., one root Method and
     // potentially many Method objects pointing to it.)
     private Method              root;
 
+    static {
+        // Provide java.lang.Class with access to root members
+        ReflectionSecrets.setRootMemberAccess(new RootMemberAccessImpl());
+    }
 
     // Generics infrastructure
     private String getGenericSignature() {return signature;}
@@ -93,15 +105,22 @@ public final class Method extends Executable {
     // Accessor for generic info repository
     @Override
     MethodRepository getGenericInfo() {
+        MethodRepository genericInfo = this.genericInfo;
         // lazily initialize repository if necessary
         if (genericInfo == null) {
-            // create and cache generic info repository
-            genericInfo = MethodRepository.make(getGenericSignature(),
-                                                getFactory());
+            // use the root's, or create and cache generic info repository
+            genericInfo = root != null && !declaresTypeParameters()
+                ? root.getGenericInfo()
+                : MethodRepository.make(getGenericSignature(), getFactory());
+            genericInfo = GenericInfoPublisher.publish(this, genericInfo);
         }
         return genericInfo; //return cached repository
     }
 
+    private boolean declaresTypeParameters() {
+        return signature != null && signature.startsWith("<");
+    }
+
     /**
      * Package-private constructor used by ReflectAccess to enable
      * instantiation of these objects in Java code from the java.lang
@@ -131,6 +150,34 @@ public final class Method extends Executable {
         this.annotationDefault = annotationDefault;
     }
 
+    // Used by java.lang.Class, via RootMemberAccess, to keep this root
+    // after a redefinition of the declaring class if the VM reports a
+    // method with the same declaration
+    boolean sameDeclaration(Method other) {
+        return name.equals(other.name) &&
+            modifiers == other.modifiers &&
+            returnType == other.returnType &&
+            Arrays.equals(parameterTypes, other.parameterTypes) &&
+            Arrays.equals(exceptionTypes, other.exceptionTypes) &&
+            Objects.equals(signature, other.signature) &&
+            sameRawAnnotations(other, OffHeapAnnotations.ANNOTATIONS) &&
+            sameRawAnnotations(other, OffHeapAnnotations.PARAMETER_ANNOTATIONS) &&
+            sameRawAnnotations(other, OffHeapAnnotations.ANNOTATION_DEFAULT);
+    }
+
+    // Compares raw annotations without copying them from off-heap
+    private boolean sameRawAnnotations(Method other, int which) {
+        return Objects.equals(rawAnnotationsView(which), other.rawAnnotationsView(which));
+    }
+
+    private ByteBuffer rawAnnotationsView(int which) {
+        return OffHeapAnnotations.view(offHeapAnnotations,
+                                       which == OffHeapAnnotations.ANNOTATIONS ? annotations :
+                                       which == OffHeapAnnotations.PARAMETER_ANNOTATIONS ? parameterAnnotations :
+                                       annotationDefault,
+                                       which);
+    }
+
     /**
      * Package-private routine (exposed to java.lang.Class via
      * ReflectAccess) which returns a copy of this Method. The copy's
@@ -147,20 +194,63 @@ public final class Method extends Executable {
         Method res = new Method(clazz, name, parameterTypes, returnType,
                                 exceptionTypes, modifiers, slot, signature,
                                 annotations, parameterAnnotations, annotationDefault);
+        res.offHeapAnnotations = offHeapAnnotations;
+        res.signatureHash = signatureHash();
         res.root = this;
-        // Might as well eagerly propagate this if already present
+        // Might as well eagerly propagate these if already present
+        if (!declaresTypeParameters())
+            res.genericInfo = genericInfo;
         res.methodAccessor = methodAccessor;
         return res;
     }
 
+    @Override
+    int computeSignatureHash() {
+        return signatureHash(name, parameterTypes);
+    }
+
     @Override
     boolean hasGenericInformation() {
         return (getGenericSignature() != null);
     }
 
+    @Override
+    Executable getRoot() {
+        return root;
+    }
+
     @Override
     byte[] getAnnotationBytes() {
-        return annotations;
+        OffHeapAnnotations o = offHeapAnnotations;
+        return o != null ? o.bytes(OffHeapAnnotations.ANNOTATIONS) : annotations;
+    }
+
+    byte[] getParameterAnnotationBytes() {
+        OffHeapAnnotations o = offHeapAnnotations;
+        return o != null ? o.bytes(OffHeapAnnotations.PARAMETER_ANNOTATIONS) : parameterAnnotations;
+    }
+
+    byte[] getAnnotationDefaultBytes() {
+        OffHeapAnnotations o = offHeapAnnotations;
+        return o != null ? o.bytes(OffHeapAnnotations.ANNOTATION_DEFAULT) : annotationDefault;
+    }
+
+    @Override
+    void deduplicateAnnotations(AnnotationDeduplication.Table table) {
+        annotations = table.canonicalize(annotations);
+        parameterAnnotations = table.canonicalize(parameterAnnotations);
+        annotationDefault = table.canonicalize(annotationDefault);
+    }
+
+    @Override
+    void moveAnnotationsOffHeap(OffHeapAnnotations.Batch batch) {
+        if (offHeapAnnotations == null) {
+            OffHeapAnnotations o = batch.store(annotations, parameterAnnotations, annotationDefault);
+            if (o != null) {
+                offHeapAnnotations = o;
+                annotations = parameterAnnotations = annotationDefault = null;
+            }
+        }
     }
 
     /**
@@ -292,6 +382,7 @@ public final class Method extends Executable {
         if (obj != null && obj instanceof Method) {
             Method other = (Method)obj;
             if ((getDeclaringClass() == other.getDeclaringClass())
+                && (signatureHash() == other.signatureHash())
                 && (getName() == other.getName())) {
                 if (!returnType.equals(other.getReturnType()))
                     return false;
@@ -333,6 +424,8 @@ public final class Method extends Executable {
      * {@code synchronized}, {@code native}, {@code strictfp}.
      */
     public String toString() {
+        if (root != null)
+            return root.toString();
         return sharedToString(Modifier.methodModifiers(),
                               parameterTypes,
                               exceptionTypes);
@@ -385,6 +478,8 @@ public final class Method extends Executable {
      */
     @Override
     public String toGenericString() {
+        if (root != null)
+            return root.toGenericString();
         return sharedToGenericString(Modifier.methodModifiers());
     }
 
@@ -517,13 +612,49 @@ public final class Method extends Executable {
             methodAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newMethodAccessor(this);
+            tmp = AccessorFactory.newMethodAccessor(this);
             setMethodAccessor(tmp);
         }
 
         return tmp;
     }
 
+    /**
+     * Marks the method represented by this {@code Method} object as hot.
+     * Reflective invocations of a hot method, through this or any other
+     * {@code Method} object reflecting the same method, switch to a
+     * generated accessor immediately instead of first being served by the
+     * native accessor for a number of invocations. This is a performance
+     * hint only and has no effect on the semantics of {@link #invoke}.
+     *
+     * @since 1.8
+     */
+    public void markHot() {
+        Method r = (root != null) ? root : this;
+        if (r.hot) {
+            return;
+        }
+        r.hot = true;
+        MethodAccessor ma = r.methodAccessor;
+        if (ma instanceof InflatingMethodAccessor) {
+            ((InflatingMethodAccessor) ma).inflate();
+        } else if (ma != null && !AccessorGenerator.isGenerated(ma) &&
+                   !MethodHandleAccessors.isMethodHandleAccessor(ma) &&
+                   !SharedDispatchAccessor.isSharedDispatch(ma)) {
+            // A plain accessor from ReflectionFactory; replace it for
+            // objects acquiring it from now on
+            MethodAccessor generated = AccessorGenerator.generateMethodAccessor(r);
+            if (generated != null) {
+                r.setMethodAccessor(generated);
+            }
+        }
+    }
+
+    // Returns true if markHot() has been called on this Method or its root
+    boolean isHot() {
+        return (root != null) ? root.hot : hot;
+    }
+
     // Returns MethodAccessor for this Method object, not looking up
     // the chain to the root
     MethodAccessor getMethodAccessor() {
@@ -555,12 +686,16 @@ public final class Method extends Executable {
      * @since  1.5
      */
     public Object getDefaultValue() {
-        if  (annotationDefault == null)
+        OffHeapAnnotations o = offHeapAnnotations;
+        ByteBuffer buf = o != null
+            ? o.buffer(OffHeapAnnotations.ANNOTATION_DEFAULT)
+            : annotationDefault == null ? null : ByteBuffer.wrap(annotationDefault);
+        if  (buf == null)
             return null;
         Class<?> memberType = AnnotationType.invocationHandlerReturnType(
             getReturnType());
         Object result = AnnotationParser.parseMemberValue(
-            memberType, ByteBuffer.wrap(annotationDefault),
+            memberType, buf,
             sun.misc.SharedSecrets.getJavaLangAccess().
                 getConstantPool(getDeclaringClass()),
             getDeclaringClass());
@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import sun.invoke.util.Wrapper;
+import sun.misc.Unsafe;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.FieldAccessor;
+import sun.reflect.MethodAccessor;
+import sun.reflect.Reflection;
+
+/**
+ * Accessors backed by direct method handles, used when
+ * {@code sun.reflect.accessorEngine=methodHandle}. Each accessor holds a
+ * handle adapted to a single erased shape ({@code (Object,Object[])Object}
+ * for methods, {@code (Object[])Object} for constructors, {@code (Object)Object}
+ * and {@code (Object,Object)void} for fields), so no class is generated per
+ * member and, once the accessor is constant for a call site, the JIT can
+ * inline through {@code invokeExact} into the target.
+ *
+ * <p>Arguments are checked and widened here, before the handle is invoked,
+ * so that argument errors surface as {@code IllegalArgumentException} and
+ * anything thrown by the handle itself is the target's own exception. The
+ * factory methods return {@code null} for members a handle cannot serve
+ * with reflective semantics (caller-sensitive methods, abstract classes,
+ * writable final fields); those keep the accessors of
+ * {@code sun.reflect.ReflectionFactory}.
+ */
+final class MethodHandleAccessors {
+
+    private MethodHandleAccessors() {}
+
+    //
+    // Factory methods
+    //
+
+    static MethodAccessor newMethodAccessor(Method method) {
+        if (!canUnreflect(method.getDeclaringClass()) ||
+            Reflection.isCallerSensitive(method)) {
+            // a handle would be bound to the wrong caller
+            return null;
+        }
+        Method copy = method.copy();
+        copy.override = true;
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        Class<?>[] ptypes = method.getParameterTypes();
+        MethodHandle target;
+        try {
+            target = MethodHandles.publicLookup().unreflect(copy);
+        } catch (IllegalAccessException e) {
+            // not thrown for a copy with override set
+            return null;
+        }
+        target = target.asType(MethodType.genericMethodType(ptypes.length + (isStatic ? 0 : 1)));
+        if (isStatic) {
+            target = MethodHandles.dropArguments(target, 0, Object.class);
+        }
+        target = target.asSpreader(Object[].class, ptypes.length);
+        Class<?> declaringClass = method.getDeclaringClass();
+        return new MHMethodAccessor(target, isStatic ? null : declaringClass, ptypes,
+                                    isStatic ? declaringClass : null);
+    }
+
+    static ConstructorAccessor newConstructorAccessor(Constructor<?> constructor) {
+        Class<?> declaringClass = constructor.getDeclaringClass();
+        if (Modifier.isAbstract(declaringClass.getModifiers()) ||
+            !canUnreflect(declaringClass)) {
+            // InstantiationException is thrown by the native accessor
+            return null;
+        }
+        Constructor<?> copy = constructor.copy();
+        copy.override = true;
+        Class<?>[] ptypes = constructor.getParameterTypes();
+        MethodHandle target;
+        try {
+            target = MethodHandles.publicLookup().unreflectConstructor(copy);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        target = target.asType(MethodType.genericMethodType(ptypes.length))
+                       .asSpreader(Object[].class, ptypes.length);
+        return new MHConstructorAccessor(target, ptypes, declaringClass);
+    }
+
+    static FieldAccessor newFieldAccessor(Field field, boolean overrideFinalCheck) {
+        int mods = field.getModifiers();
+        boolean isStatic = Modifier.isStatic(mods);
+        boolean readOnly = Modifier.isFinal(mods);
+        if ((readOnly && overrideFinalCheck) ||
+            !canUnreflect(field.getDeclaringClass())) {
+            // Writes to final fields are left to the Unsafe-based accessors
+            return null;
+        }
+        Field copy = field.copy();
+        copy.override = true;
+        MethodHandle getter, setter;
+        try {
+            getter = MethodHandles.publicLookup().unreflectGetter(copy);
+            setter = readOnly ? null : MethodHandles.publicLookup().unreflectSetter(copy);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        getter = getter.asType(isStatic ? MethodType.methodType(Object.class)
+                                        : MethodType.methodType(Object.class, Object.class));
+        if (isStatic) {
+            getter = MethodHandles.dropArguments(getter, 0, Object.class);
+        }
+        if (setter != null) {
+            setter = setter.asType(isStatic ? MethodType.methodType(void.class, Object.class)
+                                            : MethodType.methodType(void.class, Object.class, Object.class));
+            if (isStatic) {
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            }
+        }
+        return new MHFieldAccessor(field, getter, setter, isStatic);
+    }
+
+    // Members of classes defined by the bootstrap or the extension loader
+    // may be caller-sensitive, and a handle unreflected from a copy with
+    // override set would be bound to the wrong caller; they keep the
+    // native accessors, as for generated accessors.
+    static boolean canUnreflect(Class<?> declaringClass) {
+        return !AccessorGenerator.isBootOrExtensionClass(declaringClass);
+    }
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+
+    static boolean isMethodHandleAccessor(Object accessor) {
+        return accessor instanceof MHMethodAccessor ||
+               accessor instanceof MHConstructorAccessor ||
+               accessor instanceof MHFieldAccessor;
+    }
+
+    //
+    // Argument checking shared by method and constructor accessors
+    //
+
+    // Returns args, or a copy of it with primitive arguments widened to
+    // the exact wrapper type of the corresponding parameter.
+    private static Object[] convertArguments(Class<?>[] ptypes, Object[] args) {
+        int n = (args == null) ? 0 : args.length;
+        if (n != ptypes.length) {
+            throw new IllegalArgumentException("wrong number of arguments");
+        }
+        if (n == 0) {
+            return args;
+        }
+        Object[] converted = args;
+        for (int i = 0; i < n; i++) {
+            Class<?> ptype = ptypes[i];
+            Object arg = args[i];
+            if (ptype.isPrimitive()) {
+                if (arg == null || !Wrapper.isWrapperType(arg.getClass())) {
+                    throw new IllegalArgumentException("argument type mismatch");
+                }
+                Wrapper dst = Wrapper.forPrimitiveType(ptype);
+                Wrapper src = Wrapper.forWrapperType(arg.getClass());
+                if (!dst.isConvertibleFrom(src)) {
+                    throw new IllegalArgumentException("argument type mismatch");
+                }
+                if (dst != src) {
+                    if (converted == args) {
+                        converted = args.clone();
+                    }
+                    converted[i] = dst.wrap(arg);
+                }
+            } else if (arg != null && !ptype.isInstance(arg)) {
+                throw new IllegalArgumentException("argument type mismatch");
+            }
+        }
+        return converted;
+    }
+
+    //
+    // Accessors
+    //
+
+    static final class MHMethodAccessor implements MethodAccessor {
+        private final MethodHandle target;
+        // null for static methods
+        private final Class<?> declaringClass;
+        private final Class<?>[] ptypes;
+        // The declaring class of a static method until it is initialized
+        private Class<?> uninitialized;
+
+        MHMethodAccessor(MethodHandle target, Class<?> declaringClass, Class<?>[] ptypes,
+                         Class<?> uninitialized) {
+            this.target = target;
+            this.declaringClass = declaringClass;
+            this.ptypes = ptypes;
+            this.uninitialized = uninitialized;
+        }
+
+        public Object invoke(Object obj, Object[] args)
+            throws IllegalArgumentException, InvocationTargetException
+        {
+            Class<?> c = uninitialized;
+            if (c != null) {
+                // outside of the try block below, so that an
+                // ExceptionInInitializerError is thrown unwrapped, like
+                // the native accessor does
+                unsafe.ensureClassInitialized(c);
+                uninitialized = null;
+            }
+            if (declaringClass != null && !declaringClass.isInstance(obj)) {
+                if (obj == null) {
+                    throw new NullPointerException();
+                }
+                throw new IllegalArgumentException("object is not an instance of declaring class");
+            }
+            Object[] a = convertArguments(ptypes, args);
+            try {
+                return (Object) target.invokeExact(obj, a);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    static final class MHConstructorAccessor implements ConstructorAccessor {
+        private final MethodHandle target;
+        private final Class<?>[] ptypes;
+        // The declaring class until it is initialized
+        private Class<?> uninitialized;
+
+        MHConstructorAccessor(MethodHandle target, Class<?>[] ptypes, Class<?> uninitialized) {
+            this.target = target;
+            this.ptypes = ptypes;
+            this.uninitialized = uninitialized;
+        }
+
+        public Object newInstance(Object[] args)
+            throws InstantiationException, IllegalArgumentException, InvocationTargetException
+        {
+            Class<?> c = uninitialized;
+            if (c != null) {
+                // outside of the try block below, so that an
+                // ExceptionInInitializerError is thrown unwrapped, like
+                // the native accessor does
+                unsafe.ensureClassInitialized(c);
+                uninitialized = null;
+            }
+            Object[] a = convertArguments(ptypes, args);
+            try {
+                return (Object) target.invokeExact(a);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    static final class MHFieldAccessor implements FieldAccessor {
+        private final Field field;
+        private final Class<?> type;
+        // null for reference fields
+        private final Wrapper wrapper;
+        // (Object)Object; the argument is ignored for static fields
+        private final MethodHandle getter;
+        // (Object,Object)void, or null for final fields
+        private final MethodHandle setter;
+        private final boolean isStatic;
+
+        MHFieldAccessor(Field field, MethodHandle getter, MethodHandle setter, boolean isStatic) {
+            this.field = field;
+            this.type = field.getType();
+            this.wrapper = type.isPrimitive() ? Wrapper.forPrimitiveType(type) : null;
+            this.getter = getter;
+            this.setter = setter;
+            this.isStatic = isStatic;
+        }
+
+        public Object get(Object obj) throws IllegalArgumentException {
+            ensureObj(obj);
+            try {
+                return (Object) getter.invokeExact(obj);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InternalError(t);
+            }
+        }
+
+        public boolean getBoolean(Object obj) throws IllegalArgumentException {
+            return (Boolean) getAs(obj, Wrapper.BOOLEAN);
+        }
+
+        public byte getByte(Object obj) throws IllegalArgumentException {
+            return (Byte) getAs(obj, Wrapper.BYTE);
+        }
+
+        public char getChar(Object obj) throws IllegalArgumentException {
+            return (Character) getAs(obj, Wrapper.CHAR);
+        }
+
+        public short getShort(Object obj) throws IllegalArgumentException {
+            return (Short) getAs(obj, Wrapper.SHORT);
+        }
+
+        public int getInt(Object obj) throws IllegalArgumentException {
+            return (Integer) getAs(obj, Wrapper.INT);
+        }
+
+        public long getLong(Object obj) throws IllegalArgumentException {
+            return (Long) getAs(obj, Wrapper.LONG);
+        }
+
+        public float getFloat(Object obj) throws IllegalArgumentException {
+            return (Float) getAs(obj, Wrapper.FLOAT);
+        }
+
+        public double getDouble(Object obj) throws IllegalArgumentException {
+            return (Double) getAs(obj, Wrapper.DOUBLE);
+        }
+
+        public void set(Object obj, Object value)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            ensureObj(obj);
+            ensureWritable(value);
+            if (wrapper != null) {
+                if (value == null || !Wrapper.isWrapperType(value.getClass())) {
+                    throw newSetIllegalArgumentException(value);
+                }
+                Wrapper src = Wrapper.forWrapperType(value.getClass());
+                if (!wrapper.isConvertibleFrom(src)) {
+                    throw newSetIllegalArgumentException(value);
+                }
+                value = wrapper.wrap(value);
+            } else if (value != null && !type.isInstance(value)) {
+                throw newSetIllegalArgumentException(value);
+            }
+            set0(obj, value);
+        }
+
+        public void setBoolean(Object obj, boolean z)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, z, Wrapper.BOOLEAN);
+        }
+
+        public void setByte(Object obj, byte b)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, b, Wrapper.BYTE);
+        }
+
+        public void setChar(Object obj, char c)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, c, Wrapper.CHAR);
+        }
+
+        public void setShort(Object obj, short s)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, s, Wrapper.SHORT);
+        }
+
+        public void setInt(Object obj, int i)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, i, Wrapper.INT);
+        }
+
+        public void setLong(Object obj, long l)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, l, Wrapper.LONG);
+        }
+
+        public void setFloat(Object obj, float f)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, f, Wrapper.FLOAT);
+        }
+
+        public void setDouble(Object obj, double d)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            setAs(obj, d, Wrapper.DOUBLE);
+        }
+
+        // Reads the field widened to the primitive type of dst
+        private Object getAs(Object obj, Wrapper dst) {
+            if (wrapper == null || !dst.isConvertibleFrom(wrapper)) {
+                ensureObj(obj);
+                throw newGetIllegalArgumentException(dst.primitiveType().getName());
+            }
+            return dst.wrap(get(obj));
+        }
+
+        // Writes the boxed primitive value of type src, widened to the
+        // field's type
+        private void setAs(Object obj, Object value, Wrapper src)
+            throws IllegalAccessException
+        {
+            ensureObj(obj);
+            ensureWritable(value);
+            if (wrapper == null || !wrapper.isConvertibleFrom(src)) {
+                throw newSetIllegalArgumentException(src.primitiveType().getName(), value);
+            }
+            set0(obj, wrapper.wrap(value));
+        }
+
+        private void set0(Object obj, Object value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InternalError(t);
+            }
+        }
+
+        private void ensureObj(Object obj) {
+            if (!isStatic && !field.getDeclaringClass().isInstance(obj)) {
+                if (obj == null) {
+                    throw new NullPointerException();
+                }
+                throw new IllegalArgumentException(
+                    "Can not set " + type.getName() + " field " + qualifiedName() +
+                    " to " + obj.getClass().getName());
+            }
+        }
+
+        private void ensureWritable(Object value) throws IllegalAccessException {
+            if (setter == null) {
+                throw new IllegalAccessException(
+                    "Can not set " + (isStatic ? "static " : "") + "final " +
+                    type.getName() + " field " + qualifiedName() + " to " +
+                    (value == null ? "null value" : value.getClass().getName()));
+            }
+        }
+
+        private IllegalArgumentException newGetIllegalArgumentException(String kind) {
+            return new IllegalArgumentException(
+                "Attempt to get " + type.getName() + " field \"" + qualifiedName() +
+                "\" with illegal data type conversion to " + kind);
+        }
+
+        private IllegalArgumentException newSetIllegalArgumentException(Object value) {
+            return newSetIllegalArgumentException(
+                (value == null) ? "null value" : value.getClass().getName(), value);
+        }
+
+        private IllegalArgumentException newSetIllegalArgumentException(String kind, Object value) {
+            return new IllegalArgumentException(
+                "Can not set " + (isStatic ? "static " : "") + type.getName() +
+                " field " + qualifiedName() + " to " + kind);
+        }
+
+        private String qualifiedName() {
+            return field.getDeclaringClass().getName() + "." + field.getName();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import sun.misc.SharedSecrets;
+import sun.misc.VM;
+
+/**
+ * The raw annotation attributes of a root member (annotations, parameter
+ * annotations and annotation default), moved out of their own byte arrays
+ * into a shared off-heap arena when {@code sun.reflect.offHeapAnnotations}
+ * is set. The root and its copies refer to the same instance. Annotation
+ * defaults are parsed straight from the arena; annotations and parameter
+ * annotations are parsed from a transient on-heap copy, as
+ * {@link sun.reflect.annotation.AnnotationParser} only reads arrays.
+ *
+ * <p>The arena is a sequence of direct buffer slabs which are only ever
+ * appended to. A slab is freed by the garbage collector once no instance
+ * refers to it any more, that is once all the members it holds the
+ * annotations of are unreachable. The roots of one fetch are moved
+ * together, and arrays that deduplication made the same array are stored
+ * once. The arena only grows while less than half of the direct memory
+ * the VM allows is in use; beyond that, members keep their arrays.
+ */
+final class OffHeapAnnotations {
+    static final int ANNOTATIONS = 0;
+    static final int PARAMETER_ANNOTATIONS = 1;
+    static final int ANNOTATION_DEFAULT = 2;
+
+    // Small enough that a few long-lived members do not pin much memory
+    // of otherwise unreachable ones
+    private static final int SLAB_SIZE = 64 * 1024;
+
+    // The slab currently appended to; guarded by OffHeapAnnotations.class
+    private static ByteBuffer slab;
+    private static ByteBuffer readOnlySlab;
+
+    // A read-only view of the slab, and the positions in it of the
+    // records of the arrays, -1 for null. A record is an int length
+    // followed by the contents.
+    private final ByteBuffer buf;
+    private final int annotations;
+    private final int parameterAnnotations;
+    private final int annotationDefault;
+
+    private OffHeapAnnotations(ByteBuffer buf, int[] positions) {
+        this.buf = buf;
+        this.annotations = positions[ANNOTATIONS];
+        this.parameterAnnotations = positions.length > PARAMETER_ANNOTATIONS
+            ? positions[PARAMETER_ANNOTATIONS] : -1;
+        this.annotationDefault = positions.length > ANNOTATION_DEFAULT
+            ? positions[ANNOTATION_DEFAULT] : -1;
+    }
+
+    /**
+     * Moves the raw annotations of the given fresh roots, all declared by
+     * the same class, off-heap.
+     */
+    static void moveOffHeap(Field[] roots) {
+        Batch batch = new Batch();
+        for (Field f : roots) {
+            f.moveAnnotationsOffHeap(batch);
+        }
+    }
+
+    /** Like {@link #moveOffHeap(Field[])}, for methods and constructors. */
+    static void moveOffHeap(Executable[] roots) {
+        Batch batch = new Batch();
+        for (Executable e : roots) {
+            e.moveAnnotationsOffHeap(batch);
+        }
+    }
+
+    /**
+     * Stores the arrays of the roots of one fetch, each distinct array
+     * once per slab. Not thread-safe; used by one fetch.
+     */
+    static final class Batch {
+        // Positions of the arrays stored so far in the slab storedIn
+        private final Map<byte[], Integer> stored = new IdentityHashMap<>();
+        private ByteBuffer storedIn;
+
+        /**
+         * Stores the given arrays, any of which may be null, in the arena.
+         * Returns null if all of them are null, or if the arena cannot
+         * grow; the caller then keeps the arrays.
+         */
+        OffHeapAnnotations store(byte[]... arrays) {
+            int total = 0;
+            boolean any = false;
+            for (byte[] a : arrays) {
+                if (a != null) {
+                    total += 4 + a.length;
+                    any = true;
+                }
+            }
+            if (!any) {
+                return null;
+            }
+            int[] positions = new int[arrays.length];
+            if (total > SLAB_SIZE / 4) {
+                // don't waste the rest of a slab
+                ByteBuffer dest = allocate(total);
+                if (dest == null) {
+                    return null;
+                }
+                for (int i = 0; i < arrays.length; i++) {
+                    positions[i] = put(dest, arrays[i]);
+                }
+                return new OffHeapAnnotations(dest.asReadOnlyBuffer(), positions);
+            }
+            ByteBuffer fresh = null;
+            while (true) {
+                synchronized (OffHeapAnnotations.class) {
+                    if (fresh != null && (slab == null || slab.remaining() < SLAB_SIZE / 4)) {
+                        slab = fresh;
+                        readOnlySlab = fresh.asReadOnlyBuffer();
+                    }
+                    fresh = null;
+                    if (slab != storedIn) {
+                        stored.clear();
+                        storedIn = slab;
+                    }
+                    int size = 0;
+                    for (byte[] a : arrays) {
+                        if (a != null && !stored.containsKey(a)) {
+                            size += 4 + a.length;
+                        }
+                    }
+                    if (slab != null && slab.remaining() >= size) {
+                        for (int i = 0; i < arrays.length; i++) {
+                            byte[] a = arrays[i];
+                            Integer pos = a == null ? Integer.valueOf(-1) : stored.get(a);
+                            if (pos == null) {
+                                pos = put(slab, a);
+                                stored.put(a, pos);
+                            }
+                            positions[i] = pos;
+                        }
+                        return new OffHeapAnnotations(readOnlySlab, positions);
+                    }
+                }
+                // allocate outside the lock; another thread may install
+                // a slab meanwhile, then this one is dropped
+                fresh = allocate(SLAB_SIZE);
+                if (fresh == null) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    // Appends a record of the given array to the given buffer and returns
+    // its position, or returns -1 for null
+    private static int put(ByteBuffer dest, byte[] a) {
+        if (a == null) {
+            return -1;
+        }
+        int pos = dest.position();
+        dest.putInt(a.length);
+        dest.put(a);
+        return pos;
+    }
+
+    // Allocates direct memory for the arena, or returns null if that would
+    // take the direct memory in use above half of what the VM allows.
+    // Closer to the limit, allocateDirect calls System.gc() and may throw
+    // OutOfMemoryError, which reflection must not cause.
+    private static ByteBuffer allocate(int size) {
+        long used = SharedSecrets.getJavaNioAccess().getDirectBufferPool().getMemoryUsed();
+        if (used + size > VM.maxDirectMemory() / 2) {
+            return null;
+        }
+        try {
+            return ByteBuffer.allocateDirect(size);
+        } catch (OutOfMemoryError e) {
+            // lost a race for the last direct memory; stay on-heap
+            return null;
+        }
+    }
+
+    // Returns the position of the record of the given array, or -1 if it
+    // is null
+    private int position(int which) {
+        switch (which) {
+            case ANNOTATIONS:           return annotations;
+            case PARAMETER_ANNOTATIONS: return parameterAnnotations;
+            default:                    return annotationDefault;
+        }
+    }
+
+    /**
+     * Returns a fresh read-only buffer holding the given array, or null if
+     * it is null.
+     */
+    ByteBuffer buffer(int which) {
+        int pos = position(which);
+        if (pos < 0) {
+            return null;
+        }
+        ByteBuffer b = buf.duplicate();
+        b.limit(pos + 4 + buf.getInt(pos));
+        b.position(pos + 4);
+        return b.slice();
+    }
+
+    /**
+     * Returns a copy of the given array, or null if it is null.
+     */
+    byte[] bytes(int which) {
+        ByteBuffer b = buffer(which);
+        if (b == null) {
+            return null;
+        }
+        byte[] a = new byte[b.remaining()];
+        b.get(a);
+        return a;
+    }
+
+    /**
+     * Returns the given array of a member, kept in the given instance or,
+     * if that is null, in the given on-heap array, as a buffer without
+     * copying it. Used to compare raw annotations.
+     */
+    static ByteBuffer view(OffHeapAnnotations o, byte[] onHeap, int which) {
+        return o != null ? o.buffer(which)
+                         : onHeap == null ? null : ByteBuffer.wrap(onHeap);
+    }
+}
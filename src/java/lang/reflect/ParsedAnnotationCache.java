@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import sun.reflect.PinnedReference;
+import sun.reflect.annotation.AnnotationParser;
+
+/**
+ * Per-class cache of the declared annotations of fields, methods and
+ * constructors, keyed by their raw bytes. Members of one class whose raw
+ * annotations are identical get the same map, holding the same annotation
+ * instances, and only the first of them is parsed. The raw bytes refer to
+ * the constant pool of the class, so the cache is kept per class, and
+ * stays valid across redefinitions, which merge the new constant pool
+ * into the old one. The maps are unmodifiable and, like the parsed
+ * annotations of a member, only softly held; entries whose map has been
+ * cleared are removed on the next parse for the class.
+ */
+final class ParsedAnnotationCache {
+    private final ConcurrentHashMap<ByteBuffer, MapRef> maps = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Map<Class<? extends Annotation>, Annotation>> queue =
+        new ReferenceQueue<>();
+
+    // A softly held map that knows its key, to remove it once cleared
+    private static final class MapRef extends SoftReference<Map<Class<? extends Annotation>, Annotation>> {
+        final ByteBuffer key;
+
+        MapRef(ByteBuffer key,
+               Map<Class<? extends Annotation>, Annotation> map,
+               ReferenceQueue<Map<Class<? extends Annotation>, Annotation>> queue) {
+            super(map, queue);
+            this.key = key;
+        }
+    }
+
+    private static final ClassValue<ParsedAnnotationCache> caches = new ClassValue<ParsedAnnotationCache>() {
+        protected ParsedAnnotationCache computeValue(Class<?> type) {
+            return new ParsedAnnotationCache();
+        }
+    };
+
+    /**
+     * Returns the annotations parsed from the given raw bytes of a member
+     * declared by the given class. The bytes must not change afterwards.
+     */
+    static Map<Class<? extends Annotation>, Annotation> parse(byte[] raw, Class<?> declaringClass) {
+        if (raw == null) {
+            return Collections.emptyMap();
+        }
+        return caches.get(declaringClass).parse(ByteBuffer.wrap(raw), raw, declaringClass);
+    }
+
+    /**
+     * Like {@link #parse(byte[], Class)}, for raw bytes kept off-heap. The
+     * buffer is not retained: the cache is keyed by a copy of its
+     * remaining bytes, so that it does not keep the off-heap storage
+     * alive.
+     */
+    static Map<Class<? extends Annotation>, Annotation> parse(ByteBuffer raw, Class<?> declaringClass) {
+        if (raw == null) {
+            return Collections.emptyMap();
+        }
+        return caches.get(declaringClass).parse(raw, null, declaringClass);
+    }
+
+    // Looks up the given raw bytes, of which rawArray is an on-heap copy
+    // or null if there is none yet, and parses them on a miss
+    private Map<Class<? extends Annotation>, Annotation> parse(ByteBuffer raw,
+                                                               byte[] rawArray,
+                                                               Class<?> declaringClass) {
+        expungeCleared();
+        MapRef ref = maps.get(raw);
+        Map<Class<? extends Annotation>, Annotation> map;
+        if (ref != null && (map = ref.get()) != null) {
+            AnnotationDeduplication.reusedParse();
+            return map;
+        }
+        if (rawArray == null) {
+            rawArray = new byte[raw.remaining()];
+            raw.duplicate().get(rawArray);
+        }
+        ByteBuffer key = ByteBuffer.wrap(rawArray);
+        map = Collections.unmodifiableMap(AnnotationParser.parseAnnotations(
+            rawArray,
+            sun.misc.SharedSecrets.getJavaLangAccess().getConstantPool(declaringClass),
+            declaringClass));
+        MapRef newRef = new MapRef(key, map, queue);
+        while (true) {
+            ref = maps.putIfAbsent(key, newRef);
+            if (ref == null) {
+                return map;
+            }
+            Map<Class<? extends Annotation>, Annotation> other = ref.get();
+            if (other != null) {
+                // parsed concurrently by another thread; use its instances
+                return other;
+            }
+            if (maps.replace(key, ref, newRef)) {
+                return map;
+            }
+        }
+    }
+
+    /**
+     * Returns a reference to the given parsed annotations of a member
+     * declared by the given class, which is never cleared if the
+     * reflection data of the class is pinned, like the annotations of the
+     * class itself, and soft otherwise.
+     */
+    static <V> SoftReference<V> newReference(V annotations, Class<?> declaringClass) {
+        return declaringClass.isReflectionDataPinned()
+               ? new PinnedReference<>(annotations)
+               : new SoftReference<>(annotations);
+    }
+
+    // Removes the entries whose maps the garbage collector has cleared
+    private void expungeCleared() {
+        Reference<?> r;
+        while ((r = queue.poll()) != null) {
+            MapRef ref = (MapRef) r;
+            maps.remove(ref.key, ref);
+        }
+    }
+}
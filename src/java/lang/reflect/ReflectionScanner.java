@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * A {@code ReflectionScanner} reads the declared members and the
+ * annotations of many classes in parallel, for tools such as class path
+ * scanners that would otherwise call {@link Class#getDeclaredMethods()},
+ * {@link Class#getDeclaredFields()} and {@link Class#getAnnotations()}
+ * class by class on one thread.
+ *
+ * <p>The classes are split among the workers of a {@link ForkJoinPool}.
+ * Each worker fetches the members of a class, parses the annotations of
+ * the class and of its members, and hands a {@link Result} to a sink as
+ * soon as the class is done, so results arrive in no particular order and
+ * the sink is called concurrently from several workers. The data read is
+ * also cached by the classes themselves, as if the corresponding methods
+ * of {@code Class} had been called.
+ *
+ * <p>Classes share no state while being scanned, except what is shared
+ * by reflection in general, such as the classes of the annotation types.
+ *
+ * @see java.lang.Class#warmUpReflectionData(java.util.Collection, ForkJoinPool)
+ * @since 1.8
+ */
+public final class ReflectionScanner {
+    // Few enough classes to scan by one task. Scanning a class takes long
+    // enough that a finer split would hardly cost anything, but a coarser
+    // one leaves workers idle at the end of a scan.
+    private static final int THRESHOLD = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a scanner that runs in the given pool.
+     *
+     * @param pool the pool whose workers scan the classes
+     * @exception NullPointerException if {@code pool} is null
+     */
+    public ReflectionScanner(ForkJoinPool pool) {
+        if (pool == null)
+            throw new NullPointerException();
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a scanner that runs in the {@linkplain ForkJoinPool#commonPool()
+     * common pool}.
+     */
+    public ReflectionScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Scans the given classes and hands the result for each to
+     * {@code sink}, which must be safe to call from several threads at
+     * once. Returns when all classes have been scanned and all results
+     * handed to the sink.
+     *
+     * <p>A class whose members refer to types that cannot be loaded, or
+     * whose annotations are malformed, does not stop the scan; its result
+     * reports the error instead.
+     *
+     * @param classes the classes to scan
+     * @param sink receives the result for each class
+     * @exception NullPointerException if {@code classes}, any of its
+     *            elements or {@code sink} is null
+     * @exception SecurityException if a security manager is present and
+     *            denies the {@code accessDeclaredMembers}
+     *            {@link RuntimePermission}, or access to the package of
+     *            any of the classes
+     * @exception RuntimeException or {@link Error} thrown by the sink; the
+     *            scan then ends early
+     */
+    public void scan(Collection<? extends Class<?>> classes, Consumer<? super Result> sink) {
+        Class<?>[] cs = classes.toArray(new Class<?>[classes.size()]);
+        if (sink == null)
+            throw new NullPointerException();
+        for (Class<?> c : cs) {
+            if (c == null)
+                throw new NullPointerException();
+        }
+        // The members are read with the scanner's own privileges, which
+        // would pass any caller-dependent check, so require the caller to
+        // have access to the declared members of any class.
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null) {
+            sm.checkPermission(new RuntimePermission("accessDeclaredMembers"));
+            for (Class<?> c : cs) {
+                String name = c.getName();
+                int i = name.lastIndexOf('.');
+                if (i != -1) {
+                    sm.checkPackageAccess(name.substring(0, i));
+                }
+            }
+        }
+        pool.invoke(new ScanTask(cs, 0, cs.length, sink));
+    }
+
+    // Scans a range of classes, splitting it among the workers of the pool
+    private static final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?>[] classes;
+        private final int from, to;
+        private final Consumer<? super Result> sink;
+        // the next of the tasks forked by the same parent, to join
+        private ScanTask next;
+
+        ScanTask(Class<?>[] classes, int from, int to, Consumer<? super Result> sink) {
+            this.classes = classes;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+        }
+
+        protected void compute() {
+            int from = this.from, to = this.to;
+            // fork the upper halves and keep scanning the lower part here
+            ScanTask forked = null;
+            while (to - from > THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                ScanTask t = new ScanTask(classes, mid, to, sink);
+                t.next = forked;
+                forked = t;
+                t.fork();
+                to = mid;
+            }
+            boolean privileged = System.getSecurityManager() != null;
+            for (int i = from; i < to; i++) {
+                sink.accept(privileged ? privilegedScan(classes[i]) : scan(classes[i]));
+            }
+            for (ScanTask t = forked; t != null; t = t.next) {
+                t.join();
+            }
+        }
+    }
+
+    // The caller has been checked by scan(); the workers of the pool may
+    // not have the permissions of the caller, or any
+    private static Result privilegedScan(final Class<?> c) {
+        return AccessController.doPrivileged(new PrivilegedAction<Result>() {
+            public Result run() {
+                return scan(c);
+            }
+        });
+    }
+
+    private static Result scan(Class<?> c) {
+        try {
+            Field[] fields = c.getDeclaredFields();
+            Method[] methods = c.getDeclaredMethods();
+            Constructor<?>[] constructors = c.getDeclaredConstructors();
+            Annotation[] annotations = c.getAnnotations();
+            // parsed annotations are cached on the roots, which the copies
+            // returned above delegate to
+            for (Field f : fields) {
+                f.getDeclaredAnnotations();
+            }
+            for (Method m : methods) {
+                m.getDeclaredAnnotations();
+            }
+            for (Constructor<?> k : constructors) {
+                k.getDeclaredAnnotations();
+            }
+            return new Result(c, fields, methods, constructors, annotations, null);
+        } catch (LinkageError | AnnotationFormatError | TypeNotPresentException e) {
+            return new Result(c, null, null, null, null, e);
+        }
+    }
+
+    /**
+     * The members and annotations of one scanned class. The arrays returned
+     * are owned by the caller, as those returned by the corresponding
+     * methods of {@code Class}.
+     *
+     * @since 1.8
+     */
+    public static final class Result {
+        private final Class<?> scannedClass;
+        private final Field[] fields;
+        private final Method[] methods;
+        private final Constructor<?>[] constructors;
+        private final Annotation[] annotations;
+        private final Throwable error;
+
+        Result(Class<?> scannedClass, Field[] fields, Method[] methods,
+               Constructor<?>[] constructors, Annotation[] annotations, Throwable error) {
+            this.scannedClass = scannedClass;
+            this.fields = fields;
+            this.methods = methods;
+            this.constructors = constructors;
+            this.annotations = annotations;
+            this.error = error;
+        }
+
+        /**
+         * Returns the class this is the result for.
+         *
+         * @return the scanned class
+         */
+        public Class<?> getScannedClass() {
+            return scannedClass;
+        }
+
+        /**
+         * Returns the error that prevented the class from being scanned, as
+         * it would have been thrown by the corresponding method of
+         * {@code Class}, or null if the class was scanned.
+         *
+         * @return the error, or null
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Returns the fields declared by the class, as
+         * {@link Class#getDeclaredFields()}.
+         *
+         * @return the declared fields, or null if {@link #getError()}
+         *         is not null
+         */
+        public Field[] getDeclaredFields() {
+            return fields;
+        }
+
+        /**
+         * Returns the methods declared by the class, as
+         * {@link Class#getDeclaredMethods()}.
+         *
+         * @return the declared methods, or null if {@link #getError()}
+         *         is not null
+         */
+        public Method[] getDeclaredMethods() {
+            return methods;
+        }
+
+        /**
+         * Returns the constructors declared by the class, as
+         * {@link Class#getDeclaredConstructors()}.
+         *
+         * @return the declared constructors, or null if
+         *         {@link #getError()} is not null
+         */
+        public Constructor<?>[] getDeclaredConstructors() {
+            return constructors;
+        }
+
+        /**
+         * Returns the annotations present on the class, as
+         * {@link Class#getAnnotations()}.
+         *
+         * @return the annotations, or null if {@link #getError()}
+         *         is not null
+         */
+        public Annotation[] getAnnotations() {
+            return annotations;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import sun.reflect.RootMemberAccess;
+
+/** Package-private class implementing the
+    sun.reflect.RootMemberAccess interface, allowing java.lang.Class to
+    compare the declarations of root members. */
+
+class RootMemberAccessImpl implements RootMemberAccess {
+    public boolean sameDeclaration(Field a, Field b) {
+        return a.sameDeclaration(b);
+    }
+
+    public boolean sameDeclaration(Method a, Method b) {
+        return a.sameDeclaration(b);
+    }
+
+    public boolean sameDeclaration(Constructor<?> a, Constructor<?> b) {
+        return a.sameDeclaration(b);
+    }
+
+    public int getSignatureHash(Executable e) {
+        return e.signatureHash();
+    }
+
+    public int signatureHash(String name, Class<?>[] parameterTypes) {
+        return Executable.signatureHash(name, parameterTypes);
+    }
+
+    public void deduplicateAnnotations(Field[] roots) {
+        AnnotationDeduplication.deduplicate(roots);
+    }
+
+    public void deduplicateAnnotations(Method[] roots) {
+        AnnotationDeduplication.deduplicate(roots);
+    }
+
+    public void deduplicateAnnotations(Constructor<?>[] roots) {
+        AnnotationDeduplication.deduplicate(roots);
+    }
+
+    public void rewrapAnnotations(Field[] roots) {
+        for (Field f : roots) {
+            f.rewrapAnnotations();
+        }
+    }
+
+    public void rewrapAnnotations(Method[] roots) {
+        for (Method m : roots) {
+            m.rewrapAnnotations();
+        }
+    }
+
+    public void rewrapAnnotations(Constructor<?>[] roots) {
+        for (Constructor<?> c : roots) {
+            c.rewrapAnnotations();
+        }
+    }
+
+    public void moveAnnotationsOffHeap(Field[] roots) {
+        OffHeapAnnotations.moveOffHeap(roots);
+    }
+
+    public void moveAnnotationsOffHeap(Method[] roots) {
+        OffHeapAnnotations.moveOffHeap(roots);
+    }
+
+    public void moveAnnotationsOffHeap(Constructor<?>[] roots) {
+        OffHeapAnnotations.moveOffHeap(roots);
+    }
+
+    public <T> FieldCopier<T> newFieldCopier(Class<T> c, Field[] fields) {
+        return FieldCopierGenerator.generate(c, fields);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.Label;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import sun.misc.Unsafe;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.MethodAccessor;
+import sun.reflect.Reflection;
+
+import static jdk.internal.org.objectweb.asm.Opcodes.*;
+
+/**
+ * Accessor whose code is shared by all members of the same erased shape,
+ * used when {@code sun.reflect.accessorEngine=shared}.
+ *
+ * <p>A member's shape is the type of its direct method handle with every
+ * reference type erased to {@code Object} and a leading {@code Object}
+ * receiver, which is ignored for static methods and constructors: an
+ * instance method {@code String m(long)} and a static method
+ * {@code Object m(Object, long)} both have the shape
+ * {@code (Object,long)Object}. One dispatcher class is generated per shape;
+ * it unboxes the arguments and calls {@code invokeExact} on the
+ * {@link #target} handle bound in each instance, so the number of accessor
+ * classes is bounded by the number of distinct shapes rather than by the
+ * number of reflectively invoked members. The per-member state (the
+ * handle, the declaring class to check the receiver against and the
+ * parameter types to check reference arguments against) lives in the
+ * fields of this class.
+ *
+ * <p>Because {@link #target} is an instance field, which the JIT does not
+ * treat as a constant even though it is final, it can not fold the handle
+ * into the dispatcher: {@code invokeExact} stays a call through the
+ * handle's lambda form, and a dispatcher shared
+ * by many members sees many handles at that call site. Expect invocation
+ * to be slower than with a per-member generated accessor, which calls its
+ * target directly; this engine trades that speed for class count.
+ * Each member also still costs a direct method handle and, unless its
+ * type is already erased, an {@code asType} adapter.
+ *
+ * <p>{@code test.AccessorFootprintBenchmark}, which invokes 400 classes
+ * of 100 methods each past the inflation threshold, measured about 2.2 MB
+ * of accessor metaspace with this engine against about 144 MB (40015
+ * accessor classes) with the default one.
+ */
+abstract class SharedDispatchAccessor implements MethodAccessor, ConstructorAccessor {
+
+    // Per-member state
+    final MethodHandle target;
+    // null for static methods and constructors
+    private final Class<?> declaringClass;
+    // null unless a reference argument must be checked
+    private final Class<?>[] ptypes;
+    // The declaring class of a static method or constructor until it is
+    // initialized
+    private Class<?> uninitialized;
+
+    SharedDispatchAccessor(MethodHandle target, Class<?> declaringClass,
+                           Class<?>[] ptypes, Class<?> uninitialized) {
+        this.target = target;
+        this.declaringClass = declaringClass;
+        this.ptypes = ptypes;
+        this.uninitialized = uninitialized;
+    }
+
+    /**
+     * Implemented by the generated dispatcher: converts the arguments to
+     * the shape's parameter types, invokes {@link #target} and boxes the
+     * result.
+     */
+    abstract Object dispatch(Object obj, Object[] args)
+        throws InvocationTargetException;
+
+    public final Object invoke(Object obj, Object[] args)
+        throws IllegalArgumentException, InvocationTargetException
+    {
+        Class<?> c = uninitialized;
+        if (c != null) {
+            // outside of the dispatcher's try block, so that an
+            // ExceptionInInitializerError is thrown unwrapped, like the
+            // native accessor does
+            unsafe.ensureClassInitialized(c);
+            uninitialized = null;
+        }
+        if (declaringClass != null && !declaringClass.isInstance(obj)) {
+            if (obj == null) {
+                throw new NullPointerException();
+            }
+            throw new IllegalArgumentException("object is not an instance of declaring class");
+        }
+        if (ptypes != null) {
+            checkReferenceArguments(args);
+        }
+        return dispatch(obj, args);
+    }
+
+    public final Object newInstance(Object[] args)
+        throws InstantiationException, IllegalArgumentException, InvocationTargetException
+    {
+        return invoke(null, args);
+    }
+
+    // The dispatcher only knows the erased types, so arguments of
+    // reference parameters more specific than Object are checked here.
+    private void checkReferenceArguments(Object[] args) {
+        if (args == null || args.length != ptypes.length) {
+            throw new IllegalArgumentException("wrong number of arguments");
+        }
+        for (int i = 0; i < args.length; i++) {
+            Class<?> ptype = ptypes[i];
+            Object arg = args[i];
+            if (!ptype.isPrimitive() && arg != null && !ptype.isInstance(arg)) {
+                throw new IllegalArgumentException("argument type mismatch");
+            }
+        }
+    }
+
+    //
+    // Factory methods
+    //
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static final AtomicInteger counter = new AtomicInteger();
+    // The constructors of the dispatcher classes, by shape
+    private static final ConcurrentHashMap<MethodType, Constructor<?>> dispatchers =
+        new ConcurrentHashMap<>();
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(
+        void.class, MethodHandle.class, Class.class, Class[].class, Class.class);
+
+    /**
+     * Returns a shared dispatch accessor for the given method or null if
+     * the method can not be served by one.
+     */
+    static MethodAccessor newMethodAccessor(Method method) {
+        if (!MethodHandleAccessors.canUnreflect(method.getDeclaringClass()) ||
+            Reflection.isCallerSensitive(method)) {
+            // a handle would be bound to the wrong caller
+            return null;
+        }
+        Method copy = method.copy();
+        copy.override = true;
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        MethodHandle target;
+        try {
+            target = MethodHandles.publicLookup().unreflect(copy);
+        } catch (IllegalAccessException e) {
+            // not thrown for a copy with override set
+            return null;
+        }
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (isStatic) {
+            target = MethodHandles.dropArguments(target, 0, Object.class);
+        }
+        return bind(target, isStatic ? null : declaringClass,
+                    method.getParameterTypes(), isStatic ? declaringClass : null);
+    }
+
+    /**
+     * Returns a shared dispatch accessor for the given constructor or null
+     * if the constructor can not be served by one.
+     */
+    static ConstructorAccessor newConstructorAccessor(Constructor<?> constructor) {
+        Class<?> declaringClass = constructor.getDeclaringClass();
+        if (Modifier.isAbstract(declaringClass.getModifiers()) ||
+            !MethodHandleAccessors.canUnreflect(declaringClass)) {
+            return null;
+        }
+        Constructor<?> copy = constructor.copy();
+        copy.override = true;
+        MethodHandle target;
+        try {
+            target = MethodHandles.publicLookup().unreflectConstructor(copy);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        target = MethodHandles.dropArguments(target, 0, Object.class);
+        return bind(target, null, constructor.getParameterTypes(), declaringClass);
+    }
+
+    private static SharedDispatchAccessor bind(MethodHandle target,
+                                               Class<?> declaringClass,
+                                               Class<?>[] ptypes,
+                                               Class<?> uninitialized) {
+        MethodType shape = target.type().erase();
+        target = target.asType(shape);
+        Class<?>[] checked = null;
+        for (Class<?> ptype : ptypes) {
+            if (!ptype.isPrimitive() && ptype != Object.class) {
+                checked = ptypes;
+                break;
+            }
+        }
+        try {
+            return (SharedDispatchAccessor) dispatcherFor(shape).newInstance(
+                target, declaringClass, checked, uninitialized);
+        } catch (ReflectiveOperationException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    // Returns true if the given accessor dispatches through a shared class
+    static boolean isSharedDispatch(Object accessor) {
+        return accessor instanceof SharedDispatchAccessor;
+    }
+
+    // Dispatchers are VM anonymous classes, which method handle lookups
+    // refuse here, so they are instantiated reflectively; their constructor
+    // keeps the native accessor, as VM anonymous classes can't host
+    // generated ones
+    private static Constructor<?> dispatcherFor(MethodType shape) {
+        Constructor<?> dispatcher = dispatchers.get(shape);
+        if (dispatcher == null) {
+            try {
+                dispatcher = generateDispatcher(shape).getDeclaredConstructor(
+                    CONSTRUCTOR_TYPE.parameterArray());
+            } catch (NoSuchMethodException e) {
+                throw new InternalError(e);
+            }
+            Constructor<?> existing = dispatchers.putIfAbsent(shape, dispatcher);
+            if (existing != null) {
+                dispatcher = existing;
+            }
+        }
+        return dispatcher;
+    }
+
+    private static final String SUPER = "java/lang/reflect/SharedDispatchAccessor";
+    private static final String MH = "java/lang/invoke/MethodHandle";
+
+    private static Class<?> generateDispatcher(MethodType shape) {
+        // Parameters after the leading receiver slot
+        Class<?>[] ptypes = shape.dropParameterTypes(0, 1).parameterArray();
+        Class<?> rtype = shape.returnType();
+        String className = SUPER + "$$Dispatcher$" + counter.incrementAndGet();
+
+        ClassWriter cw = AccessorGenerator.newClassWriter();
+        cw.visit(V1_8, ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, className, null,
+                 SUPER, null);
+        String init = CONSTRUCTOR_TYPE.toMethodDescriptorString();
+        MethodVisitor mv = cw.visitMethod(0, "<init>", init, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitVarInsn(ALOAD, 4);
+        mv.visitMethodInsn(INVOKESPECIAL, SUPER, "<init>", init, false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(0, "dispatch",
+            "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;",
+            null, new String[] { "java/lang/reflect/InvocationTargetException" });
+        mv.visitCode();
+        Label tryStart = new Label();
+        Label tryEnd = new Label();
+        Label handler = new Label();
+        mv.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/Throwable");
+
+        int[] slots = AccessorGenerator.emitArguments(mv, 2, 3, ptypes);
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, SUPER, "target", "L" + MH + ";");
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitLabel(tryStart);
+        AccessorGenerator.loadArguments(mv, slots, ptypes);
+        mv.visitMethodInsn(INVOKEVIRTUAL, MH, "invokeExact",
+                           shape.toMethodDescriptorString(), false);
+        mv.visitLabel(tryEnd);
+        AccessorGenerator.emitBoxing(mv, rtype);
+        mv.visitInsn(ARETURN);
+
+        AccessorGenerator.emitTargetExceptionHandler(mv, handler);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+
+        return unsafe.defineAnonymousClass(SharedDispatchAccessor.class,
+                                           cw.toByteArray(), null);
+    }
+}
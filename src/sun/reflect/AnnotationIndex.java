@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.reflect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.AnnotationFormatError;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** <P> A memory-mapped index from annotation types to the names of the
+    classes they are present on, for frameworks that need all classes
+    annotated with some type at startup without loading every class and
+    reflecting on it. The index is generated once, at build time or on
+    a first run, with {@link #write}, which reads the annotations of the
+    given classes through {@link Class#getAnnotations()}, so
+    annotations inherited from superclasses are indexed as well. </P>
+
+    <P> Queries read the mapped file in place: finding an annotation type
+    allocates nothing but the encoded name looked up, and the returned
+    list decodes a class name only when it is accessed. </P>
+
+    <P> File layout, big-endian; a name is an int length followed by that
+    many bytes of UTF-8:
+    <PRE>
+    int magic, int version, int count
+    count * { int name hash, int name offset, int postings offset, int postings }
+            sorted by hash
+    postings: for each annotation type, int name offsets of its classes
+              sorted by name
+    names
+    </PRE> */
+
+public final class AnnotationIndex {
+    private static final int MAGIC = 0x414e4958; // "ANIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private final ByteBuffer buf;
+    private final int count;
+
+    private AnnotationIndex(ByteBuffer buf, int count) {
+        this.buf = buf;
+        this.count = count;
+    }
+
+    /** Maps the given index file. */
+    public static AnnotationIndex open(Path file) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.remaining() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("Not an annotation index: " + file);
+        }
+        return new AnnotationIndex(buf, buf.getInt(8));
+    }
+
+    /** Returns the names of the classes the annotation type with the given
+        name is present on, in ascending order; the list is empty if there
+        are none. The list is an unmodifiable view of the mapped file. */
+    public List<String> getAnnotatedClassNames(String annotationType) {
+        final int entry = find(annotationType);
+        if (entry < 0) {
+            return Collections.emptyList();
+        }
+        final int postings = buf.getInt(entry + 8);
+        final int size = buf.getInt(entry + 12);
+        return new AbstractList<String>() {
+            public String get(int i) {
+                if (i < 0 || i >= size) {
+                    throw new IndexOutOfBoundsException(Integer.toString(i));
+                }
+                return getName(buf.getInt(postings + 4 * i));
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /** Returns the names of all annotation types in this index. */
+    public List<String> getAnnotationTypes() {
+        List<String> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            types.add(getName(buf.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 4)));
+        }
+        Collections.sort(types);
+        return types;
+    }
+
+    // Returns the position of the index entry for the given annotation
+    // type, or -1
+    private int find(String annotationType) {
+        int hash = annotationType.hashCode();
+        byte[] name = null;
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int h = buf.getInt(HEADER_SIZE + mid * INDEX_ENTRY_SIZE);
+            if (h < hash) {
+                lo = mid + 1;
+            } else if (h > hash) {
+                hi = mid - 1;
+            } else {
+                while (mid > 0 && buf.getInt(HEADER_SIZE + (mid - 1) * INDEX_ENTRY_SIZE) == hash) {
+                    mid--;
+                }
+                name = annotationType.getBytes(StandardCharsets.UTF_8);
+                for (; mid < count && buf.getInt(HEADER_SIZE + mid * INDEX_ENTRY_SIZE) == hash; mid++) {
+                    int entry = HEADER_SIZE + mid * INDEX_ENTRY_SIZE;
+                    if (nameEquals(buf.getInt(entry + 4), name)) {
+                        return entry;
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // Compares the name at the given offset with the given bytes in place
+    private boolean nameEquals(int offset, byte[] name) {
+        if (buf.getInt(offset) != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buf.get(offset + 4 + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getName(int offset) {
+        byte[] b = new byte[buf.getInt(offset)];
+        ByteBuffer dup = buf.duplicate();
+        dup.position(offset + 4);
+        dup.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /** Writes an index of the annotations present on the given classes.
+        Classes whose annotations cannot be read are left out; the members
+        of a class are not looked at, so a member that cannot be linked
+        does not drop its class. */
+    public static void write(Path file, Collection<? extends Class<?>> classes) throws IOException {
+        Map<String, TreeSet<String>> index = new HashMap<>();
+        for (Class<?> c : classes) {
+            Annotation[] annotations;
+            try {
+                annotations = c.getAnnotations();
+            } catch (LinkageError | AnnotationFormatError | TypeNotPresentException e) {
+                continue;
+            }
+            for (Annotation a : annotations) {
+                String type = a.annotationType().getName();
+                TreeSet<String> names = index.get(type);
+                if (names == null) {
+                    names = new TreeSet<>();
+                    index.put(type, names);
+                }
+                names.add(c.getName());
+            }
+        }
+        write(file, index);
+    }
+
+    private static void write(Path file, Map<String, TreeSet<String>> index) throws IOException {
+        List<String> types = new ArrayList<>(index.keySet());
+        Collections.sort(types, new Comparator<String>() {
+            public int compare(String a, String b) {
+                return Integer.compare(a.hashCode(), b.hashCode());
+            }
+        });
+
+        // lay out the names after the postings, each once
+        Map<String, Integer> nameOffsets = new TreeMap<>();
+        int postingsSize = 0;
+        for (String type : types) {
+            nameOffsets.put(type, 0);
+            for (String name : index.get(type)) {
+                nameOffsets.put(name, 0);
+            }
+            postingsSize += 4 * index.get(type).size();
+        }
+        int offset = HEADER_SIZE + types.size() * INDEX_ENTRY_SIZE + postingsSize;
+        for (Map.Entry<String, Integer> e : nameOffsets.entrySet()) {
+            e.setValue(offset);
+            offset += 4 + e.getKey().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(types.size());
+        int postings = HEADER_SIZE + types.size() * INDEX_ENTRY_SIZE;
+        for (String type : types) {
+            out.writeInt(type.hashCode());
+            out.writeInt(nameOffsets.get(type));
+            out.writeInt(postings);
+            out.writeInt(index.get(type).size());
+            postings += 4 * index.get(type).size();
+        }
+        for (String type : types) {
+            for (String name : index.get(type)) {
+                out.writeInt(nameOffsets.get(name));
+            }
+        }
+        for (String name : nameOffsets.keySet()) {
+            byte[] b = name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+        out.flush();
+
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "index", ".tmp");
+        try {
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
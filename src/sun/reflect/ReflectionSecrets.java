@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.reflect;
+
+import sun.misc.Unsafe;
+
+/** Holder of the objects through which java.lang calls package-private
+    methods of java.lang.reflect and the other way round, in the manner of
+    sun.misc.SharedSecrets. */
+
+public class ReflectionSecrets {
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static RootMemberAccess rootMemberAccess;
+    private static RawFieldAccess rawFieldAccess;
+
+    public static RootMemberAccess getRootMemberAccess() {
+        if (rootMemberAccess == null) {
+            // Ensure Method is initialized; we know that that class
+            // provides the shared secret
+            unsafe.ensureClassInitialized(java.lang.reflect.Method.class);
+        }
+        return rootMemberAccess;
+    }
+
+    public static void setRootMemberAccess(RootMemberAccess access) {
+        rootMemberAccess = access;
+    }
+
+    public static RawFieldAccess getRawFieldAccess() {
+        // Provided by java.lang.Class, which is initialized by now
+        return rawFieldAccess;
+    }
+
+    public static void setRawFieldAccess(RawFieldAccess access) {
+        rawFieldAccess = access;
+    }
+}
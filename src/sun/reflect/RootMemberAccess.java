@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.reflect;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.FieldCopier;
+import java.lang.reflect.Method;
+
+/** Gives java.lang.Class access to package-private state of the root
+    Field, Method and Constructor objects it caches. Implemented in
+    java.lang.reflect and obtained via {@link ReflectionSecrets}. */
+
+public interface RootMemberAccess {
+    /** Returns true if the two root fields, which must be declared by the
+        same class, have the same name, type, modifiers, generic signature
+        and raw annotations. */
+    public boolean sameDeclaration(Field a, Field b);
+
+    /** Returns true if the two root methods, which must be declared by the
+        same class, have the same name, parameter, return and exception
+        types, modifiers, generic signature and raw annotations (including
+        parameter annotations and annotation default). */
+    public boolean sameDeclaration(Method a, Method b);
+
+    /** Returns true if the two root constructors, which must be declared
+        by the same class, have the same parameter and exception types,
+        modifiers, generic signature and raw annotations. */
+    public boolean sameDeclaration(Constructor<?> a, Constructor<?> b);
+
+    /** Returns the hash of the name and parameter types of the given
+        method or constructor, which its copies share. Executables with
+        the same name and parameter types have the same hash. */
+    public int getSignatureHash(Executable e);
+
+    /** Returns the hash {@link #getSignatureHash} would return for a
+        method of the given name and parameter types, or for a constructor
+        of the given parameter types if the name is null. A null array is
+        treated as empty. */
+    public int signatureHash(String name, Class<?>[] parameterTypes);
+
+    /** Replaces the raw annotations of the given fresh root fields, which
+        must all be declared by the same class, by shared arrays where
+        they are identical. */
+    public void deduplicateAnnotations(Field[] roots);
+
+    /** Like {@link #deduplicateAnnotations(Field[])}, for methods. */
+    public void deduplicateAnnotations(Method[] roots);
+
+    /** Like {@link #deduplicateAnnotations(Field[])}, for constructors. */
+    public void deduplicateAnnotations(Constructor<?>[] roots);
+
+    /** Re-wraps the parsed annotations of the given roots, which must all
+        be declared by the same class, after the reflection data of that
+        class has been pinned or unpinned. */
+    public void rewrapAnnotations(Field[] roots);
+
+    /** Like {@link #rewrapAnnotations(Field[])}, for methods. */
+    public void rewrapAnnotations(Method[] roots);
+
+    /** Like {@link #rewrapAnnotations(Field[])}, for constructors. */
+    public void rewrapAnnotations(Constructor<?>[] roots);
+
+    /** Moves the raw annotations of the given fresh root fields, which
+        must all be declared by the same class, to the shared off-heap
+        arena, storing arrays shared by deduplication once. */
+    public void moveAnnotationsOffHeap(Field[] roots);
+
+    /** Like {@link #moveAnnotationsOffHeap(Field[])}, for methods: their
+        raw annotations, parameter annotations and annotation default. */
+    public void moveAnnotationsOffHeap(Method[] roots);
+
+    /** Like {@link #moveAnnotationsOffHeap(Field[])}, for constructors:
+        their raw annotations and parameter annotations. */
+    public void moveAnnotationsOffHeap(Constructor<?>[] roots);
+
+    /** Generates a copier for the given non-static root fields of the
+        given class or its superclasses. */
+    public <T> FieldCopier<T> newFieldCopier(Class<T> c, Field[] fields);
+}
@@ -0,0 +1,168 @@
+package test;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.Method;
+
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import jdk.internal.org.objectweb.asm.Opcodes;
+import jdk.internal.org.objectweb.asm.Type;
+
+/**
+ * Measures the number of classes and the metaspace consumed by reflection
+ * accessors. Spins {@code CLASSES} classes with {@code METHODS} static
+ * methods each, spread over a handful of signature shapes, invokes every
+ * method past the inflation threshold and reports the growth in loaded
+ * classes and metaspace, minus the cost of the target classes themselves.
+ * Accessors defined as VM anonymous classes are not always included in the
+ * loaded class count, so metaspace is the figure to compare across engines.
+ * <p>
+ * Run once per engine and compare:
+ * <pre>
+ *   java -Xbootclasspath/p:... test.AccessorFootprintBenchmark
+ *   java -Xbootclasspath/p:... -Dsun.reflect.accessorEngine=shared test.AccessorFootprintBenchmark
+ *   java -Xbootclasspath/p:... -Dsun.reflect.accessorEngine=methodHandle test.AccessorFootprintBenchmark
+ * </pre>
+ * Results on a JDK 8u392 VM with the classes of this tree prepended to the
+ * boot class path:
+ * <pre>
+ *   engine        accessor classes   accessor metaspace   time
+ *   native                   40015        143,767,480 B   10,349 ms
+ *   shared                     158          2,177,488 B    1,100 ms
+ *   methodHandle               196          2,340,168 B      900 ms
+ * </pre>
+ * The class counts of the last two engines leave out most of their VM
+ * anonymous classes; compare metaspace. With only 20 invocations per
+ * method, the times mostly reflect the cost of creating the accessors.
+ */
+public class AccessorFootprintBenchmark {
+
+    static final int CLASSES = 400;
+    static final int METHODS = 100;
+    static final int INVOCATIONS = 20; // > sun.reflect.inflationThreshold
+
+    // Descriptors of the generated methods, cycled through
+    static final String[] SHAPES = {
+        "(Ljava/lang/Object;)Ljava/lang/Object;",
+        "(Ljava/lang/String;J)Ljava/lang/String;",
+        "(I)I",
+        "(JJ)V",
+        "(Ljava/lang/Object;I)Z",
+    };
+
+    static final Object[][] ARGS = {
+        { "x" },
+        { "x", 1L },
+        { 1 },
+        { 1L, 2L },
+        { "x", 1 },
+    };
+
+    static byte[] generate(String name) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null,
+                 "java/lang/Object", null);
+        for (int i = 0; i < METHODS; i++) {
+            String desc = SHAPES[i % SHAPES.length];
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+                                              "m" + i, desc, null, null);
+            mv.visitCode();
+            Type rtype = Type.getReturnType(desc);
+            switch (rtype.getSort()) {
+                case Type.VOID:
+                    mv.visitInsn(Opcodes.RETURN);
+                    break;
+                case Type.OBJECT:
+                    mv.visitVarInsn(Opcodes.ALOAD, 0);
+                    mv.visitInsn(Opcodes.ARETURN);
+                    break;
+                default:
+                    mv.visitInsn(Opcodes.ICONST_1);
+                    mv.visitInsn(Opcodes.IRETURN);
+            }
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    static class Loader extends ClassLoader {
+        Class<?> define(String name) {
+            byte[] bytes = generate(name.replace('.', '/'));
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    static long metaspaceUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if (name.contains("Metaspace") || name.contains("Perm Gen")) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    // Static, so that the measured classes stay reachable across System.gc()
+    static Loader loader;
+    static Class<?>[] classes;
+    static Method[][] methods;
+
+    public static void main(String[] args) throws Exception {
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        loader = new Loader();
+        classes = new Class<?>[CLASSES];
+
+        System.gc();
+        long classes0 = classLoading.getTotalLoadedClassCount();
+        long meta0 = metaspaceUsed();
+        for (int i = 0; i < CLASSES; i++) {
+            classes[i] = loader.define("test.gen.Target" + i);
+        }
+        methods = new Method[CLASSES][];
+        for (int i = 0; i < CLASSES; i++) {
+            methods[i] = new Method[METHODS];
+            for (int j = 0; j < METHODS; j++) {
+                methods[i][j] = classes[i].getMethod("m" + j, parameterTypes(j));
+            }
+        }
+        System.gc();
+        long classes1 = classLoading.getTotalLoadedClassCount();
+        long meta1 = metaspaceUsed();
+
+        long t0 = System.nanoTime();
+        for (int k = 0; k < INVOCATIONS; k++) {
+            for (int i = 0; i < CLASSES; i++) {
+                for (int j = 0; j < METHODS; j++) {
+                    methods[i][j].invoke(null, ARGS[j % SHAPES.length]);
+                }
+            }
+        }
+        long t = System.nanoTime() - t0;
+        System.gc();
+        long classes2 = classLoading.getTotalLoadedClassCount();
+        long meta2 = metaspaceUsed();
+
+        System.out.println("engine: " + System.getProperty("sun.reflect.accessorEngine", "native"));
+        System.out.printf("target classes:   %8d loaded, %,12d bytes metaspace%n",
+                          classes1 - classes0, meta1 - meta0);
+        System.out.printf("accessor classes: %8d loaded, %,12d bytes metaspace%n",
+                          classes2 - classes1, meta2 - meta1);
+        System.out.printf("%d methods * %d invocations: %,.3f ms%n",
+                          CLASSES * METHODS, INVOCATIONS, (double) t / 1000_000d);
+    }
+
+    static Class<?>[] parameterTypes(int j) {
+        switch (j % SHAPES.length) {
+            case 0: return new Class<?>[] { Object.class };
+            case 1: return new Class<?>[] { String.class, long.class };
+            case 2: return new Class<?>[] { int.class };
+            case 3: return new Class<?>[] { long.class, long.class };
+            default: return new Class<?>[] { Object.class, int.class };
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package test;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.AnnotationDeduplication;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static test.Checks.check;
+
+/**
+ * Checks that identical raw annotations of the members of a class are
+ * deduplicated, and that the members still report their own annotations.
+ * <p>
+ * It checks behaviour that a stock JDK does not have. It passes with the
+ * classes of this tree prepended to the boot class path.
+ */
+public class AnnotationDeduplicationTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface JsonProperty {
+        String value() default "";
+    }
+
+    public static class Dto {
+        @JsonProperty public int a;
+        @JsonProperty public int b;
+        @JsonProperty public int c;
+        @JsonProperty public int d;
+        @JsonProperty("e") public int e;
+
+        @JsonProperty public int getA() { return a; }
+        @JsonProperty public int getB() { return b; }
+        @JsonProperty public int getC() { return c; }
+        public void setA(int a) { this.a = a; }
+        public void setB(int b) { this.b = b; }
+        public void setC(int c) { this.c = c; }
+    }
+
+    public static void main(String[] args) {
+        long arrays = AnnotationDeduplication.getDeduplicatedArrayCount();
+        long bytes = AnnotationDeduplication.getSavedBytes();
+
+        Field[] fields = Dto.class.getDeclaredFields();
+        Method[] methods = Dto.class.getDeclaredMethods();
+
+        long dedupArrays = AnnotationDeduplication.getDeduplicatedArrayCount() - arrays;
+        long savedBytes = AnnotationDeduplication.getSavedBytes() - bytes;
+        System.out.println("deduplicated " + dedupArrays + " arrays, saved " + savedBytes + " bytes");
+        // a..d share one array, getA..getC another; the parameter
+        // annotations of the setters, if the compiler emitted any, a third
+        check(dedupArrays >= 3 + 2, "identical arrays deduplicated");
+        check(savedBytes > 0, "saved bytes reported");
+
+        for (Field f : fields) {
+            JsonProperty p = f.getAnnotation(JsonProperty.class);
+            check(p != null && p.value().equals(f.getName().equals("e") ? "e" : ""),
+                  f.getName() + " keeps its annotation");
+        }
+        for (Method m : methods) {
+            check((m.getAnnotation(JsonProperty.class) != null) == m.getName().startsWith("get"),
+                  m.getName() + " keeps its annotations");
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+import sun.reflect.AnnotationIndex;
+
+import static test.Checks.check;
+
+/**
+ * Writes an annotation index of a few classes, maps it again and checks
+ * the answers to queries.
+ * <p>
+ * It runs on a stock JDK with the classes of this tree on the class path,
+ * and passes there.
+ */
+public class AnnotationIndexTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Inherited
+    public @interface Service {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Entity {
+    }
+
+    @Service
+    public static class A {
+    }
+
+    @Service @Entity
+    public static class B {
+    }
+
+    // inherits @Service
+    public static class C extends A {
+    }
+
+    @Entity
+    public static class D {
+    }
+
+    public static class E {
+    }
+
+    public static class Missing {
+    }
+
+    // loaded without Missing, so its methods cannot be linked
+    @Service
+    public static class F {
+        public Missing get() { return null; }
+    }
+
+    static String n(Class<?> c) {
+        return c.getName();
+    }
+
+    // Loads F in a loader that has its class files but not Missing's
+    static Class<?> loadWithoutMissing(Path dir) throws Exception {
+        for (Class<?> c : Arrays.<Class<?>>asList(F.class, Service.class)) {
+            String name = c.getName().replace('.', '/') + ".class";
+            Path target = dir.resolve(name);
+            Files.createDirectories(target.getParent());
+            try (InputStream in = AnnotationIndexTest.class.getResourceAsStream("/" + name)) {
+                Files.copy(in, target);
+            }
+        }
+        return new URLClassLoader(new URL[] { dir.toUri().toURL() }, null).loadClass(F.class.getName());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("annotation", ".index");
+        Path dir = Files.createTempDirectory("annotation");
+        try {
+            Class<?> f = loadWithoutMissing(dir);
+            try {
+                f.getDeclaredMethods();
+                check(false, "methods of F cannot be linked");
+            } catch (NoClassDefFoundError e) {
+                // expected
+            }
+            AnnotationIndex.write(file, Arrays.<Class<?>>asList(
+                A.class, B.class, C.class, D.class, E.class, Deprecated.class, f));
+            AnnotationIndex index = AnnotationIndex.open(file);
+
+            List<String> services = index.getAnnotatedClassNames(Service.class.getName());
+            check(services.equals(Arrays.asList(n(A.class), n(B.class), n(C.class), n(F.class))),
+                  "declared and inherited annotations, and those of a class with unlinkable members: " +
+                  services);
+            List<String> entities = index.getAnnotatedClassNames(Entity.class.getName());
+            check(entities.equals(Arrays.asList(n(B.class), n(D.class))),
+                  "annotations not inherited: " + entities);
+            check(index.getAnnotatedClassNames("no.such.Annotation").isEmpty(),
+                  "unknown annotation type");
+            check(index.getAnnotationTypes().containsAll(Arrays.asList(
+                      Service.class.getName(), Entity.class.getName(),
+                      Retention.class.getName())),
+                  "annotation types: " + index.getAnnotationTypes());
+        } finally {
+            Files.delete(file);
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                public FileVisitResult visitFile(Path p, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(p);
+                    return FileVisitResult.CONTINUE;
+                }
+                public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                    Files.delete(d);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package test;
+
+/**
+ * The assertion shared by the tests in this package. It throws
+ * {@code AssertionError} without depending on {@code -ea}, and prints
+ * nothing when the condition holds, so a test that completes normally has
+ * passed.
+ * <p>
+ * Most tests check behaviour that only the classes of this tree provide
+ * and must be run with those prepended to the boot class path
+ * ({@code -Xbootclasspath/p:}). The class comment of each test says
+ * how it has been run.
+ */
+final class Checks {
+
+    private Checks() {}
+
+    static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
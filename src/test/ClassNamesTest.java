@@ -0,0 +1,53 @@
+package test;
+
+import static test.Checks.check;
+
+/**
+ * Checks the simple and canonical names and the kind of top level,
+ * member, local and anonymous classes and arrays of them, and that
+ * repeated calls return the names computed the first time.
+ * <p>
+ * It checks behaviour that a stock JDK does not have. It passes with the
+ * classes of this tree prepended to the boot class path.
+ */
+public class ClassNamesTest {
+
+    public static class Member {
+        public class Inner {
+        }
+    }
+
+    static void checkNames(Class<?> c, String simpleName, String canonicalName,
+                           boolean anonymous, boolean local, boolean member) {
+        for (int i = 0; i < 2; i++) {
+            String what = c.getName() + (i == 0 ? "" : " (cached)");
+            check(simpleName.equals(c.getSimpleName()), what + ": simple name " + c.getSimpleName());
+            check(canonicalName == null ? c.getCanonicalName() == null
+                                        : canonicalName.equals(c.getCanonicalName()),
+                  what + ": canonical name " + c.getCanonicalName());
+            check(c.isAnonymousClass() == anonymous, what + ": anonymous");
+            check(c.isLocalClass() == local, what + ": local");
+            check(c.isMemberClass() == member, what + ": member");
+        }
+        check(c.getSimpleName() == c.getSimpleName(), c.getName() + ": simple name cached");
+    }
+
+    public static void main(String[] args) {
+        class Local {
+        }
+        Object anonymous = new Object() {
+        };
+        String self = ClassNamesTest.class.getName();
+
+        checkNames(ClassNamesTest.class, "ClassNamesTest", self, false, false, false);
+        checkNames(Member.class, "Member", self + ".Member", false, false, true);
+        checkNames(Member.Inner.class, "Inner", self + ".Member.Inner", false, false, true);
+        checkNames(Local.class, "Local", null, false, true, false);
+        checkNames(anonymous.getClass(), "", null, true, false, false);
+        checkNames(Member.Inner[][].class, "Inner[][]", self + ".Member.Inner[][]", false, false, false);
+        checkNames(Local[].class, "Local[]", null, false, false, false);
+        checkNames(int[].class, "int[]", "int[]", false, false, false);
+        checkNames(int.class, "int", "int", false, false, false);
+        checkNames(java.util.Map.Entry.class, "Entry", "java.util.Map.Entry", false, false, true);
+    }
+}
@@ -0,0 +1,59 @@
+package test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import static test.Checks.check;
+
+/**
+ * Checks the enclosing methods and constructors of local and anonymous
+ * classes, and that every call returns a fresh copy.
+ * <p>
+ * It passes both on a stock JDK and with the classes of this tree
+ * prepended to the boot class path.
+ */
+public class EnclosingMemberTest {
+
+    static final Object IN_INITIALIZER = new Object() {
+    };
+
+    final Object inConstructor;
+
+    EnclosingMemberTest(String s) {
+        inConstructor = new Object() {
+        };
+    }
+
+    static Object inMethod(int a, String[] b) {
+        class Local {
+        }
+        return new Local();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Class<?> local = inMethod(0, null).getClass();
+        Method expected = EnclosingMemberTest.class.getDeclaredMethod("inMethod", int.class, String[].class);
+        Method m1 = local.getEnclosingMethod();
+        Method m2 = local.getEnclosingMethod();
+        check(expected.equals(m1) && expected.equals(m2), "enclosing method");
+        check(m1 != m2, "a copy per call");
+        m1.setAccessible(true);
+        check(!m2.isAccessible(), "copies are independent");
+        check(local.getEnclosingConstructor() == null, "no enclosing constructor of a local class in a method");
+
+        Class<?> anonymous = new EnclosingMemberTest("").inConstructor.getClass();
+        Constructor<?> c1 = anonymous.getEnclosingConstructor();
+        Constructor<?> c2 = anonymous.getEnclosingConstructor();
+        check(EnclosingMemberTest.class.getDeclaredConstructor(String.class).equals(c1) &&
+              c1.equals(c2) && c1 != c2,
+              "enclosing constructor");
+        check(anonymous.getEnclosingMethod() == null, "no enclosing method of an anonymous class in a constructor");
+
+        Class<?> initializer = IN_INITIALIZER.getClass();
+        check(initializer.getEnclosingMethod() == null && initializer.getEnclosingConstructor() == null,
+              "nothing encloses an anonymous class in an initializer");
+        check(EnclosingMemberTest.class.getEnclosingMethod() == null &&
+              EnclosingMemberTest.class.getEnclosingConstructor() == null,
+              "nothing encloses a top level class");
+    }
+}
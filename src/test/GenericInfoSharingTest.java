@@ -0,0 +1,67 @@
+package test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.List;
+import java.util.Map;
+
+import static test.Checks.check;
+
+/**
+ * Checks that copies of a member share the generic types parsed by their
+ * root, except for the type variables an executable declares itself,
+ * which must still belong to each copy.
+ * <p>
+ * It checks behaviour that a stock JDK does not have. It passes with the
+ * classes of this tree prepended to the boot class path.
+ */
+public class GenericInfoSharingTest {
+
+    public static class Bean<T> {
+        public Map<String, List<T>> items;
+
+        public Bean(List<T> init) {}
+        public <U> Bean(U u, List<U> more) {}
+
+        public Map<String, List<T>> getItems() { return items; }
+        public <U extends Number> List<U> select(Class<U> type) { return null; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Field f1 = Bean.class.getField("items"), f2 = Bean.class.getField("items");
+        check(f1.getGenericType() instanceof ParameterizedType &&
+              f1.getGenericType() == f2.getGenericType(), "field generic type shared");
+
+        Method g1 = Bean.class.getMethod("getItems"), g2 = Bean.class.getMethod("getItems");
+        check(g1.getGenericReturnType() == g2.getGenericReturnType() &&
+              g1.getGenericReturnType().equals(f1.getGenericType()),
+              "method generic return type shared");
+
+        Constructor<?> c1 = Bean.class.getConstructor(List.class);
+        Constructor<?> c2 = Bean.class.getConstructor(List.class);
+        check(c1.getGenericParameterTypes()[0] == c2.getGenericParameterTypes()[0],
+              "constructor generic parameter types shared");
+
+        // type variables declared by the method belong to each copy
+        Method s1 = Bean.class.getMethod("select", Class.class);
+        Method s2 = Bean.class.getMethod("select", Class.class);
+        TypeVariable<Method> u1 = s1.getTypeParameters()[0];
+        TypeVariable<Method> u2 = s2.getTypeParameters()[0];
+        check(u1.getGenericDeclaration() == s1 && u2.getGenericDeclaration() == s2,
+              "method type variables declared by their copy");
+        Type arg = ((ParameterizedType) s2.getGenericReturnType()).getActualTypeArguments()[0];
+        check(((TypeVariable<?>) arg).getGenericDeclaration() == s2,
+              "method return type refers to its copy");
+        check(u1.equals(u2) && u1.getBounds()[0] == Number.class, "method type variables equal");
+
+        Constructor<?> k1 = Bean.class.getConstructor(Object.class, List.class);
+        Constructor<?> k2 = Bean.class.getConstructor(Object.class, List.class);
+        check(k1.getTypeParameters()[0].getGenericDeclaration() == k1 &&
+              k2.getTypeParameters()[0].getGenericDeclaration() == k2,
+              "constructor type variables declared by their copy");
+    }
+}
@@ -0,0 +1,121 @@
+package test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static test.Checks.check;
+
+/**
+ * Has 128 threads resolve the generic types of the same freshly loaded
+ * classes at the same time, and checks that they all see the same
+ * repository-backed results: equal generic member types, and the very
+ * same generic superclass and interfaces of each class.
+ * <p>
+ * It checks behaviour that a stock JDK does not have. It passes with the
+ * classes of this tree prepended to the boot class path.
+ */
+public class GenericInfoStressTest {
+
+    static final int THREADS = 128;
+    static final int ROUNDS = 20;
+
+    public interface Repository<K, V> {
+        V find(K key);
+        List<V> findAll(Iterable<? extends K> keys);
+    }
+
+    public static abstract class AbstractRepository<K extends Comparable<K>, V>
+        implements Repository<K, V> {
+        protected Map<K, List<V>> index;
+        public <R extends V> R cast(V v, Class<R> type) { return type.cast(v); }
+    }
+
+    public static class Users extends AbstractRepository<String, Map<String, Object>>
+        implements Comparable<Users> {
+        public Map<String, List<Map<String, Object>>> byGroup;
+        public Map<String, Object> find(String key) { return null; }
+        public List<Map<String, Object>> findAll(Iterable<? extends String> keys) { return null; }
+        public int compareTo(Users o) { return 0; }
+    }
+
+    static final String[] CLASSES = {
+        Users.class.getName(), AbstractRepository.class.getName(), Repository.class.getName(),
+    };
+
+    // What one thread sees of a class; identity matters for the class-level types
+    static final class View {
+        final Type superclass;
+        final Type[] interfaces;
+        final List<String> members = new ArrayList<>();
+
+        View(Class<?> c) {
+            superclass = c.getGenericSuperclass();
+            interfaces = c.getGenericInterfaces();
+            members.add(Arrays.toString(c.getTypeParameters()));
+            for (Field f : c.getDeclaredFields()) {
+                members.add(f.getName() + ": " + f.getGenericType());
+            }
+            for (Method m : c.getDeclaredMethods()) {
+                members.add(m.toGenericString() + ": " + m.getGenericReturnType() +
+                            Arrays.toString(m.getGenericParameterTypes()));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        URL location = GenericInfoStressTest.class.getProtectionDomain().getCodeSource().getLocation();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // fresh classes, so that every round resolves from scratch
+                URLClassLoader loader = new URLClassLoader(new URL[] { location }, null);
+                final Class<?>[] classes = new Class<?>[CLASSES.length];
+                for (int i = 0; i < classes.length; i++) {
+                    classes[i] = Class.forName(CLASSES[i], false, loader);
+                }
+                final CyclicBarrier start = new CyclicBarrier(THREADS);
+                List<Future<View[]>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    futures.add(pool.submit(new Callable<View[]>() {
+                        public View[] call() throws Exception {
+                            start.await();
+                            View[] views = new View[classes.length];
+                            for (int i = 0; i < classes.length; i++) {
+                                views[i] = new View(classes[i]);
+                            }
+                            return views;
+                        }
+                    }));
+                }
+                View[] first = futures.get(0).get();
+                for (Future<View[]> f : futures) {
+                    View[] views = f.get();
+                    for (int i = 0; i < views.length; i++) {
+                        String what = "round " + round + ", " + CLASSES[i];
+                        check(views[i].superclass == first[i].superclass, what + ": same superclass");
+                        check(views[i].interfaces.length == first[i].interfaces.length, what + ": interfaces");
+                        for (int k = 0; k < views[i].interfaces.length; k++) {
+                            check(views[i].interfaces[k] == first[i].interfaces[k], what + ": same interfaces");
+                        }
+                        check(views[i].members.equals(first[i].members), what + ": equal member types");
+                    }
+                }
+                loader.close();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
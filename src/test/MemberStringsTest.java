@@ -0,0 +1,62 @@
+package test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import static test.Checks.check;
+
+/**
+ * Checks that the strings rendered for fields, methods and constructors
+ * are unchanged, and that copies of the same member share them.
+ * <p>
+ * It checks behaviour that a stock JDK does not have. It passes with the
+ * classes of this tree prepended to the boot class path.
+ */
+public class MemberStringsTest {
+
+    public static class Target<T> {
+        public static final int[][] MATRIX = null;
+        protected List<T> list;
+
+        public Target(Map<String, T> map) throws IllegalStateException {}
+
+        public <U extends T> U[] convert(List<? super U> in, String... names) { return null; }
+    }
+
+    static void same(String a, String b, String expected, String what) {
+        check(a.equals(expected), what + ": " + a);
+        check(a == b, what + " shared by copies");
+    }
+
+    public static void main(String[] args) throws Exception {
+        String t = Target.class.getName();
+
+        Field m1 = Target.class.getField("MATRIX"), m2 = Target.class.getField("MATRIX");
+        same(m1.toString(), m2.toString(),
+             "public static final int[][] " + t + ".MATRIX", "field toString");
+        Field l1 = Target.class.getDeclaredField("list"), l2 = Target.class.getDeclaredField("list");
+        same(l1.toGenericString(), l2.toGenericString(),
+             "protected java.util.List<T> " + t + ".list", "field toGenericString");
+
+        Method c1 = Target.class.getMethod("convert", List.class, String[].class);
+        Method c2 = Target.class.getMethod("convert", List.class, String[].class);
+        same(c1.toString(), c2.toString(),
+             "public java.lang.Object[] " + t + ".convert(java.util.List,java.lang.String[])",
+             "method toString");
+        same(c1.toGenericString(), c2.toGenericString(),
+             "public <U> U[] " + t + ".convert(java.util.List<? super U>,java.lang.String...)",
+             "method toGenericString");
+
+        Constructor<?> k1 = Target.class.getConstructor(Map.class);
+        Constructor<?> k2 = Target.class.getConstructor(Map.class);
+        same(k1.toString(), k2.toString(),
+             "public " + t + "(java.util.Map) throws java.lang.IllegalStateException",
+             "constructor toString");
+        same(k1.toGenericString(), k2.toGenericString(),
+             "public " + t + "(java.util.Map<java.lang.String, T>) throws java.lang.IllegalStateException",
+             "constructor toGenericString");
+    }
+}
@@ -0,0 +1,218 @@
+package test;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static test.Checks.check;
+
+/**
+ * Checks the reflective semantics of method and constructor accessors:
+ * static and instance methods, constructors, primitive and void results,
+ * widening of primitive arguments, argument and receiver errors, the
+ * wrapping of exceptions thrown by the target but not of those thrown by
+ * class initialization, and that caller-sensitive methods see the caller
+ * of {@code Method.invoke}. Run with
+ * {@code -Dsun.reflect.accessorEngine=methodHandle} to check the accessors
+ * of {@code java.lang.reflect.MethodHandleAccessors}, which the test then
+ * also verifies are the ones invoked; without it the test checks the
+ * default accessors.
+ * <p>
+ * It passes on a stock JDK, and with the classes of this tree prepended
+ * to the boot class path with each of the {@code native}, {@code shared}
+ * and {@code methodHandle} engines.
+ */
+public class MethodHandleAccessorsTest {
+
+    static final boolean METHOD_HANDLE_ENGINE =
+        "methodHandle".equals(System.getProperty("sun.reflect.accessorEngine"));
+
+    // Whether the last call into Target came through a method handle accessor
+    static boolean viaMethodHandle;
+
+    static void recordCaller() {
+        viaMethodHandle = false;
+        for (StackTraceElement e : Thread.currentThread().getStackTrace()) {
+            if (e.getClassName().startsWith("java.lang.reflect.MethodHandleAccessors")) {
+                viaMethodHandle = true;
+            }
+        }
+    }
+
+    public static class Target {
+        final String name;
+
+        public Target(String name, int n) {
+            recordCaller();
+            this.name = name + n;
+        }
+
+        public Target(boolean fail) throws IOException {
+            if (fail) {
+                throw new IOException("constructor");
+            }
+            this.name = null;
+        }
+
+        public static long add(int a, long b) {
+            recordCaller();
+            return a + b;
+        }
+
+        public String greet(String who) {
+            recordCaller();
+            return name + " greets " + who;
+        }
+
+        public boolean isEmpty() { return name == null || name.isEmpty(); }
+        public char first() { return name.charAt(0); }
+        public double half(float f) { return f / 2; }
+        public void nothing() {}
+
+        public static void fail(String message) throws IOException {
+            throw new IOException(message);
+        }
+
+        public void unchecked() {
+            throw new IllegalStateException("unchecked");
+        }
+    }
+
+    public static abstract class Abstract {
+        public Abstract() {}
+    }
+
+    static boolean failInitialization = true;
+
+    public static class FailingStatic {
+        static {
+            if (failInitialization) {
+                throw new IllegalStateException("static initializer");
+            }
+        }
+
+        public static void run() {}
+    }
+
+    public static class FailingConstructor {
+        static {
+            if (failInitialization) {
+                throw new IllegalStateException("static initializer");
+            }
+        }
+
+        public FailingConstructor() {}
+    }
+
+    static void checkEngine(String what) {
+        if (METHOD_HANDLE_ENGINE) {
+            check(viaMethodHandle, what + ": invoked through a method handle accessor");
+        }
+    }
+
+    static void checkThrows(Class<? extends Throwable> expected, Runnable action, String what) {
+        try {
+            action.run();
+        } catch (Throwable t) {
+            check(expected.isInstance(t), what + ": threw " + t);
+            return;
+        }
+        check(false, what + ": nothing thrown");
+    }
+
+    public static void main(String[] args) throws Exception {
+        // static method, with a byte argument widened to int
+        final Method add = Target.class.getMethod("add", int.class, long.class);
+        check(Long.valueOf(5L).equals(add.invoke(null, (byte) 2, 3L)), "static method");
+        checkEngine("static method");
+        check(Long.valueOf(5L).equals(add.invoke("ignored receiver", 2, 3)), "static method, receiver ignored");
+
+        // constructor
+        Constructor<Target> init = Target.class.getConstructor(String.class, int.class);
+        Target target = init.newInstance("t", 1);
+        check("t1".equals(target.name), "constructor");
+        checkEngine("constructor");
+
+        // instance method
+        final Method greet = Target.class.getMethod("greet", String.class);
+        check("t1 greets you".equals(greet.invoke(target, "you")), "instance method");
+        checkEngine("instance method");
+
+        // primitive and void results
+        check(Boolean.FALSE.equals(Target.class.getMethod("isEmpty").invoke(target)), "boolean result");
+        check(Character.valueOf('t').equals(Target.class.getMethod("first").invoke(target)), "char result");
+        check(Double.valueOf(1.5).equals(Target.class.getMethod("half", float.class).invoke(target, 3)),
+              "double result of an int widened to float");
+        check(Target.class.getMethod("nothing").invoke(target) == null, "void result");
+
+        // receiver and argument errors are not wrapped
+        checkThrows(NullPointerException.class, invoke(greet, null, "you"), "null receiver");
+        checkThrows(IllegalArgumentException.class, invoke(greet, "not a target", "you"), "wrong receiver");
+        checkThrows(IllegalArgumentException.class, invoke(greet, target, 42), "wrong argument type");
+        checkThrows(IllegalArgumentException.class, invoke(greet, target), "too few arguments");
+        checkThrows(IllegalArgumentException.class, invoke(add, null, 1L, 2L), "narrowing argument");
+        checkThrows(IllegalArgumentException.class, invoke(add, null, null, 2L), "null primitive argument");
+
+        // exceptions thrown by the target are wrapped
+        try {
+            Target.class.getMethod("fail", String.class).invoke(null, "checked");
+            check(false, "checked exception: nothing thrown");
+        } catch (InvocationTargetException e) {
+            check(e.getCause() instanceof IOException && "checked".equals(e.getCause().getMessage()),
+                  "checked exception wrapped");
+        }
+        try {
+            Target.class.getMethod("unchecked").invoke(target);
+            check(false, "unchecked exception: nothing thrown");
+        } catch (InvocationTargetException e) {
+            check(e.getCause() instanceof IllegalStateException, "unchecked exception wrapped");
+        }
+        try {
+            Target.class.getConstructor(boolean.class).newInstance(true);
+            check(false, "constructor exception: nothing thrown");
+        } catch (InvocationTargetException e) {
+            check(e.getCause() instanceof IOException, "constructor exception wrapped");
+        }
+
+        // failed class initialization is not the target's exception
+        try {
+            FailingStatic.class.getMethod("run").invoke(null);
+            check(false, "static initializer: nothing thrown");
+        } catch (ExceptionInInitializerError e) {
+            // expected
+        }
+        try {
+            FailingConstructor.class.getConstructor().newInstance();
+            check(false, "static initializer of constructor: nothing thrown");
+        } catch (ExceptionInInitializerError e) {
+            // expected
+        }
+
+        // a caller-sensitive method sees the test as its caller, so
+        // Class.forName resolves with the test's class loader
+        Method forName = Class.class.getMethod("forName", String.class);
+        check(forName.invoke(null, Target.class.getName()) == Target.class,
+              "caller-sensitive method");
+
+        // abstract classes can't be instantiated by any engine
+        try {
+            Abstract.class.getConstructor().newInstance();
+            check(false, "abstract class: nothing thrown");
+        } catch (InstantiationException e) {
+            // expected
+        }
+    }
+
+    static Runnable invoke(final Method m, final Object obj, final Object... args) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    m.invoke(obj, args);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+    }
+}
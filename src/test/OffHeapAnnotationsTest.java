@@ -0,0 +1,82 @@
+package test;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static test.Checks.check;
+
+/**
+ * Checks that annotations, parameter annotations and annotation defaults
+ * read back unchanged when raw annotations are kept off-heap. Run with
+ * {@code -Dsun.reflect.offHeapAnnotations=true}; without it the test
+ * checks the on-heap path.
+ * <p>
+ * It passes on both paths with the classes of this tree prepended to
+ * the boot class path.
+ */
+public class OffHeapAnnotationsTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Tag {
+        String value() default "default";
+        int[] numbers() default { 1, 2, 3 };
+        Class<?> type() default Object.class;
+    }
+
+    public static class Target {
+        @Tag("field")
+        public int f;
+
+        public int plain;
+
+        @Tag(value = "method", numbers = { 4 })
+        public void m(@Tag("p0") int a, int b, @Tag(type = String.class) String c) {
+        }
+
+        @Tag("constructor")
+        public Target(@Tag("cp") int a) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("sun.reflect.offHeapAnnotations=" +
+                           System.getProperty("sun.reflect.offHeapAnnotations"));
+
+        Field f = Target.class.getField("f");
+        check(f.getAnnotation(Tag.class).value().equals("field"), "field annotation");
+        check(Target.class.getField("plain").getDeclaredAnnotations().length == 0,
+              "field without annotations");
+
+        Method m = Target.class.getMethod("m", int.class, int.class, String.class);
+        Tag tag = m.getAnnotation(Tag.class);
+        check(tag.value().equals("method") && Arrays.equals(tag.numbers(), new int[] { 4 }),
+              "method annotation");
+        Annotation[][] pa = m.getParameterAnnotations();
+        check(pa.length == 3 &&
+              ((Tag) pa[0][0]).value().equals("p0") &&
+              pa[1].length == 0 &&
+              ((Tag) pa[2][0]).type() == String.class,
+              "parameter annotations");
+
+        Method value = Tag.class.getMethod("value");
+        Method numbers = Tag.class.getMethod("numbers");
+        check(value.getDefaultValue().equals("default") &&
+              Arrays.equals((int[]) numbers.getDefaultValue(), new int[] { 1, 2, 3 }),
+              "annotation defaults");
+
+        Constructor<Target> c = Target.class.getConstructor(int.class);
+        check(c.getAnnotation(Tag.class).value().equals("constructor") &&
+              ((Tag) c.getParameterAnnotations()[0][0]).value().equals("cp"),
+              "constructor annotations");
+
+        // copies share the root's raw annotations
+        Method copy = Target.class.getMethod("m", int.class, int.class, String.class);
+        check(copy != m && Arrays.deepEquals(copy.getParameterAnnotations(), pa),
+              "parameter annotations of another copy");
+    }
+}
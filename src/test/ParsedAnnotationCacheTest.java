@@ -0,0 +1,53 @@
+package test;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.AnnotationDeduplication;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static test.Checks.check;
+
+/**
+ * Checks that members of a class with identical annotations share the
+ * parsed annotation instances, and that members with different
+ * annotations do not.
+ * <p>
+ * It checks behaviour that a stock JDK does not have. It passes with the
+ * classes of this tree prepended to the boot class path.
+ */
+public class ParsedAnnotationCacheTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Column {
+        String value() default "";
+    }
+
+    public static class Entity {
+        @Column public int a;
+        @Column public int b;
+        @Column("c") public int c;
+
+        @Column public int getA() { return a; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long reused = AnnotationDeduplication.getReusedParseCount();
+
+        Field a = Entity.class.getField("a");
+        Field b = Entity.class.getField("b");
+        Field c = Entity.class.getField("c");
+        Method getA = Entity.class.getMethod("getA");
+
+        Column ca = a.getAnnotation(Column.class);
+        check(ca == b.getAnnotation(Column.class), "identical annotations shared");
+        check(ca == getA.getAnnotation(Column.class), "shared between fields and methods");
+        check(ca != c.getAnnotation(Column.class) &&
+              c.getAnnotation(Column.class).value().equals("c"),
+              "different annotations not shared");
+        check(ca == Entity.class.getField("a").getAnnotation(Column.class),
+              "shared with another copy");
+        check(AnnotationDeduplication.getReusedParseCount() - reused >= 2,
+              "reused parses reported");
+    }
+}
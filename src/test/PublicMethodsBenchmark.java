@@ -0,0 +1,115 @@
+package test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Times the aggregation of public methods by {@link Class#getMethods()}
+ * for class hierarchies of 10, 100 and 1000 methods. Each hierarchy is an
+ * interface {@code I} of n/2 methods, a class {@code Base} implementing it
+ * with n methods and a class {@code Sub} overriding n/2 of them; they are
+ * compiled once and loaded by a fresh class loader for each round. The
+ * declared public methods of the three types are fetched before the timed
+ * {@code Sub.getMethods()} call, so that it measures the aggregation of
+ * {@code Sub} and {@code Base} and not the fetching from the VM. The
+ * median of the timed calls is reported.
+ * <p>
+ * Needs {@code tools.jar} to compile the hierarchies. Medians of three runs
+ * on 8u392, with the classes of this tree on the boot class path and on
+ * the stock JDK:
+ * <pre>
+ *   methods   this tree     stock
+ *        10      9.0 us     8.3 us
+ *       100     54.2 us    62.8 us
+ *      1000   3049   us  3140   us
+ * </pre>
+ * The differences are within the noise of the single-CPU machine they
+ * were measured on.
+ */
+public class PublicMethodsBenchmark {
+
+    static final int WARMUP_ROUNDS = 500;
+    static final int ROUNDS = 2000;
+
+    static void write(Path dir, String name, String body) throws IOException {
+        Files.write(dir.resolve(name + ".java"), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Path compile(int n) throws IOException {
+        Path dir = Files.createTempDirectory("methods" + n);
+        StringBuilder i = new StringBuilder("public interface I {\n");
+        StringBuilder base = new StringBuilder("public class Base implements I {\n");
+        StringBuilder sub = new StringBuilder("public class Sub extends Base {\n");
+        for (int k = 0; k < n; k++) {
+            String m = "public int m" + k + "(int a, String b)";
+            if (k < n / 2) {
+                i.append("    ").append(m).append(";\n");
+                sub.append("    ").append(m).append(" { return ").append(-k).append("; }\n");
+            }
+            base.append("    ").append(m).append(" { return ").append(k).append("; }\n");
+        }
+        write(dir, "I", i.append("}\n").toString());
+        write(dir, "Base", base.append("}\n").toString());
+        write(dir, "Sub", sub.append("}\n").toString());
+
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IllegalStateException("no system Java compiler, put tools.jar on the class path");
+        }
+        int rc = javac.run(null, null, null, "-d", dir.toString(),
+                           dir.resolve("I.java").toString(),
+                           dir.resolve("Base.java").toString(),
+                           dir.resolve("Sub.java").toString());
+        if (rc != 0) {
+            throw new IllegalStateException("javac failed: " + rc);
+        }
+        return dir;
+    }
+
+    static long round(URL url) throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { url }, null)) {
+            Class<?> sub = loader.loadClass("Sub");
+            // fetch the declared public methods of each type in advance
+            for (Class<?> c = sub; c != Object.class; c = c.getSuperclass()) {
+                c.getMethod("m0", int.class, String.class);
+            }
+            loader.loadClass("I").getMethod("m0", int.class, String.class);
+
+            long t0 = System.nanoTime();
+            int length = sub.getMethods().length;
+            long t = System.nanoTime() - t0;
+            if (length == 0) throw new AssertionError();
+            return t;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int n : new int[] { 10, 100, 1000 }) {
+            URL url;
+            try {
+                url = compile(n).toUri().toURL();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (int r = 0; r < WARMUP_ROUNDS; r++) {
+                round(url);
+            }
+            long[] times = new long[ROUNDS];
+            for (int r = 0; r < ROUNDS; r++) {
+                times[r] = round(url);
+            }
+            // the median, as single calls are easily hit by a collection
+            Arrays.sort(times);
+            System.out.printf("%5d methods: %,12.3f us per getMethods()%n",
+                              n, times[ROUNDS / 2] / 1000d);
+        }
+    }
+}
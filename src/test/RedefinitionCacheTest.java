@@ -0,0 +1,161 @@
+package test;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+
+import jdk.internal.org.objectweb.asm.AnnotationVisitor;
+import jdk.internal.org.objectweb.asm.ClassReader;
+import jdk.internal.org.objectweb.asm.ClassVisitor;
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.FieldVisitor;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+import jdk.internal.org.objectweb.asm.Opcodes;
+
+import static test.Checks.check;
+
+/**
+ * Checks which cached reflection data survives retransformation of a class.
+ * The test is its own instrumentation agent; package it in a jar whose
+ * manifest contains
+ * <pre>
+ *   Premain-Class: test.RedefinitionCacheTest
+ *   Can-Retransform-Classes: true
+ * </pre>
+ * and run
+ * <pre>
+ *   java -Xbootclasspath/p:... -javaagent:test.jar -cp test.jar test.RedefinitionCacheTest
+ * </pre>
+ * A body-only retransformation must keep the root members (observed through
+ * the identity of their parsed annotations) and the class annotations; a
+ * retransformation that changes one field annotation must only re-parse that
+ * field's annotations.
+ * <p>
+ * It passes with the classes of this tree prepended to the boot class
+ * path, with {@code sun.reflect.offHeapAnnotations} both off and on.
+ */
+public class RedefinitionCacheTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marker {
+        String value();
+    }
+
+    @Marker("Target")
+    public static class Target {
+        @Marker("f")
+        public int f;
+
+        @Marker("g")
+        public int g;
+
+        @Marker("m")
+        public int m() {
+            return 1;
+        }
+    }
+
+    static volatile Instrumentation instrumentation;
+
+    public static void premain(String args, Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    // 0: no change, 1: m() returns 2, 2: additionally @Marker("f2") on f
+    static volatile int transformation;
+
+    static class Transformer implements ClassFileTransformer {
+        public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+            // compare names; referring to Target.class here would load it
+            // from within its own initial transformation
+            if (classBeingRedefined == null || transformation == 0 ||
+                !className.equals("test/RedefinitionCacheTest$Target")) {
+                return null;
+            }
+            ClassReader cr = new ClassReader(classfileBuffer);
+            // keep the constant pool, as a real agent rewriting bodies would
+            ClassWriter cw = new ClassWriter(cr, 0);
+            cr.accept(new ClassVisitor(Opcodes.ASM5, cw) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String desc,
+                                                 String signature, String[] exceptions) {
+                    MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+                    if (!name.equals("m")) {
+                        return mv;
+                    }
+                    return new MethodVisitor(Opcodes.ASM5, mv) {
+                        @Override
+                        public void visitInsn(int opcode) {
+                            super.visitInsn(opcode == Opcodes.ICONST_1 ? Opcodes.ICONST_2 : opcode);
+                        }
+                    };
+                }
+
+                @Override
+                public FieldVisitor visitField(int access, String name, String desc,
+                                               String signature, Object value) {
+                    FieldVisitor fv = super.visitField(access, name, desc, signature, value);
+                    if (!name.equals("f") || transformation < 2) {
+                        return fv;
+                    }
+                    return new FieldVisitor(Opcodes.ASM5, fv) {
+                        @Override
+                        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                            return new AnnotationVisitor(Opcodes.ASM5, super.visitAnnotation(desc, visible)) {
+                                @Override
+                                public void visit(String name, Object value) {
+                                    super.visit(name, "value".equals(name) ? "f2" : value);
+                                }
+                            };
+                        }
+                    };
+                }
+            }, 0);
+            return cw.toByteArray();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (instrumentation == null) {
+            throw new IllegalStateException("run with -javaagent, see the class comment");
+        }
+        instrumentation.addTransformer(new Transformer(), true);
+
+        Marker classMarker = Target.class.getAnnotation(Marker.class);
+        Marker fMarker = Target.class.getField("f").getAnnotation(Marker.class);
+        Marker gMarker = Target.class.getField("g").getAnnotation(Marker.class);
+        Method m = Target.class.getMethod("m");
+        Marker mMarker = m.getDeclaredAnnotations().length == 1
+                         ? (Marker) m.getDeclaredAnnotations()[0] : null;
+
+        // Body-only change
+        transformation = 1;
+        instrumentation.retransformClasses(Target.class);
+        check((Integer) Target.class.getMethod("m").invoke(new Target()) == 2,
+              "method body was retransformed");
+        check(Target.class.getAnnotation(Marker.class) == classMarker,
+              "class annotations kept after body-only change");
+        check(Target.class.getField("f").getAnnotation(Marker.class) == fMarker,
+              "root field kept after body-only change");
+        check(Target.class.getMethod("m").getDeclaredAnnotations()[0] == mMarker,
+              "root method kept after body-only change");
+
+        // Annotation change on one field
+        transformation = 2;
+        instrumentation.retransformClasses(Target.class);
+        Field f = Target.class.getField("f");
+        check(f.getAnnotation(Marker.class).value().equals("f2"),
+              "changed field annotation is re-parsed");
+        check(Target.class.getField("g").getAnnotation(Marker.class) == gMarker,
+              "unchanged field kept after annotation change");
+        check(Target.class.getMethod("m").getDeclaredAnnotations()[0] == mMarker,
+              "unchanged method kept after annotation change");
+        check(Target.class.getAnnotation(Marker.class) == classMarker,
+              "class annotations kept after member annotation change");
+    }
+}
@@ -0,0 +1,53 @@
+package test;
+
+import java.io.IOException;
+import java.lang.reflect.ReflectionScanner;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Times a {@link ReflectionScanner} scan of the public {@code java.*}
+ * classes of {@code rt.jar} with a pool of the given parallelism (default:
+ * the number of available processors). The classes must be cold, so run
+ * each parallelism in a fresh VM, e.g.
+ * <pre>
+ *   for p in 1 2 4 8 16 32 64; do java ... test.ReflectionScannerBenchmark $p; done
+ * </pre>
+ * and compare the throughput reported against {@code p = 1}.
+ */
+public class ReflectionScannerBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = args.length > 0
+                          ? Integer.parseInt(args[0])
+                          : Runtime.getRuntime().availableProcessors();
+        List<Class<?>> classes = WarmUpBenchmark.loadClasses();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        final AtomicInteger errors = new AtomicInteger();
+        final LongAdder members = new LongAdder();
+        long t0 = System.nanoTime();
+        new ReflectionScanner(pool).scan(classes, new Consumer<ReflectionScanner.Result>() {
+            public void accept(ReflectionScanner.Result r) {
+                if (r.getError() != null) {
+                    errors.incrementAndGet();
+                } else {
+                    members.add(r.getDeclaredFields().length +
+                                r.getDeclaredMethods().length +
+                                r.getDeclaredConstructors().length +
+                                r.getAnnotations().length);
+                }
+            }
+        });
+        long t = System.nanoTime() - t0;
+        pool.shutdown();
+
+        System.out.printf("parallelism %3d: %d classes (%d errors, %d members and annotations) " +
+                          "in %,10.3f ms, %,10.0f classes/s%n",
+                          parallelism, classes.size(), errors.get(), members.sum(),
+                          t / 1000_000d, classes.size() * 1e9 / t);
+    }
+}
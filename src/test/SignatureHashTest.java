@@ -0,0 +1,100 @@
+package test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import static test.Checks.check;
+
+/**
+ * Checks lookups and equality of overloaded methods and constructors,
+ * which are told apart by their cached signature hashes first.
+ * <p>
+ * It passes both on a stock JDK and with the classes of this tree
+ * prepended to the boot class path.
+ */
+public class SignatureHashTest {
+
+    public static class Overloads {
+        public Overloads() {}
+        public Overloads(int a) {}
+        public Overloads(long a) {}
+        public Overloads(int a, String b) {}
+
+        public int m() { return 0; }
+        public int m(int a) { return 1; }
+        public int m(long a) { return 2; }
+        public int m(int a, String b) { return 3; }
+        public int m(String b, int a) { return 4; }
+    }
+
+    public static class Sub extends Overloads implements Comparable<Sub> {
+        public int m(long a) { return 5; }
+        public int compareTo(Sub o) { return 0; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Overloads o = new Overloads();
+        check((Integer) Overloads.class.getMethod("m").invoke(o) == 0, "m()");
+        check((Integer) Overloads.class.getMethod("m", (Class<?>[]) null).invoke(o) == 0, "m(null)");
+        check((Integer) Overloads.class.getMethod("m", int.class).invoke(o, 1) == 1, "m(int)");
+        check((Integer) Overloads.class.getMethod("m", long.class).invoke(o, 1L) == 2, "m(long)");
+        check((Integer) Overloads.class.getMethod("m", int.class, String.class).invoke(o, 1, "") == 3,
+              "m(int, String)");
+        check((Integer) Overloads.class.getMethod("m", String.class, int.class).invoke(o, "", 1) == 4,
+              "m(String, int)");
+        check((Integer) Sub.class.getMethod("m", long.class).invoke(new Sub(), 1L) == 5,
+              "overriding m(long)");
+        try {
+            Overloads.class.getMethod("m", String.class);
+            check(false, "m(String) found");
+        } catch (NoSuchMethodException expected) {
+            check(true, "m(String) not found");
+        }
+        try {
+            Overloads.class.getMethod("m", new Class<?>[] { null });
+            check(false, "m(null element) found");
+        } catch (NoSuchMethodException expected) {
+            check(true, "m(null element) not found");
+        }
+
+        check(Overloads.class.getConstructor().getParameterTypes().length == 0, "constructor ()");
+        check(Overloads.class.getConstructor((Class<?>[]) null).getParameterTypes().length == 0,
+              "constructor (null)");
+        Constructor<Overloads> c = Overloads.class.getConstructor(int.class, String.class);
+        check(c.getParameterTypes()[1] == String.class, "constructor (int, String)");
+        check(c.equals(Overloads.class.getConstructor(int.class, String.class)) &&
+              !c.equals(Overloads.class.getConstructor(int.class)),
+              "constructor equality");
+
+        Method[] declared = Overloads.class.getDeclaredMethods();
+        Set<Method> set = new HashSet<>();
+        for (Method m : declared) {
+            check(m.equals(Overloads.class.getDeclaredMethod(m.getName(), m.getParameterTypes())),
+                  "copy equals " + m);
+            set.add(m);
+        }
+        check(set.size() == declared.length, "overloads distinct");
+
+        // m(long) of Overloads is overridden, compareTo has a bridge method
+        int count = 0;
+        for (Method m : Sub.class.getMethods()) {
+            if (m.getName().equals("m")) {
+                count++;
+                check(m.getDeclaringClass() == (m.getParameterTypes().length == 1 &&
+                                                m.getParameterTypes()[0] == long.class
+                                                ? Sub.class : Overloads.class),
+                      "inherited " + m);
+            }
+        }
+        check(count == 5, "five m methods");
+        int compareTo = 0;
+        for (Method m : Sub.class.getMethods()) {
+            if (m.getName().equals("compareTo")) {
+                compareTo++;
+            }
+        }
+        check(compareTo == 2, "compareTo and its bridge");
+    }
+}
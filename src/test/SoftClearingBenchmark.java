@@ -0,0 +1,102 @@
+package test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long it takes to get back to warm reflection after the
+ * garbage collector has cleared all soft references. Each round warms the
+ * member and annotation caches of a set of JDK classes, forces soft
+ * references to be cleared by exhausting the heap, and then times
+ * re-reading the declared members and the annotations separately against
+ * the same operations on warm caches.
+ * <p>
+ * Run with a small heap so that clearing is quick, e.g. {@code -Xmx256m}.
+ */
+public class SoftClearingBenchmark {
+
+    static final Class<?>[] CLASSES = {
+        String.class, StringBuilder.class, Integer.class, Long.class, Double.class,
+        Character.class, Math.class, Thread.class, ThreadGroup.class, Runtime.class,
+        System.class, ClassLoader.class, Object.class, Enum.class, Throwable.class,
+        java.util.Date.class, java.util.HashMap.class, java.util.ArrayList.class,
+        java.util.Collections.class, java.util.Arrays.class, java.util.Calendar.class,
+        java.util.concurrent.ConcurrentHashMap.class, java.util.concurrent.ThreadPoolExecutor.class,
+        java.io.File.class, java.io.ObjectInputStream.class, java.io.ObjectOutputStream.class,
+        java.net.URL.class, java.net.Socket.class, java.awt.Component.class, java.awt.List.class,
+    };
+
+    static int touchMembers() {
+        int n = 0;
+        for (Class<?> c : CLASSES) {
+            n += c.getDeclaredMethods().length;
+            n += c.getDeclaredFields().length;
+            n += c.getDeclaredConstructors().length;
+            n += c.getMethods().length;
+        }
+        return n;
+    }
+
+    static int touchAnnotations() {
+        int n = 0;
+        for (Class<?> c : CLASSES) {
+            n += c.getAnnotations().length;
+            for (Method m : c.getDeclaredMethods()) {
+                n += m.getDeclaredAnnotations().length;
+            }
+            for (Field f : c.getDeclaredFields()) {
+                n += f.getDeclaredAnnotations().length;
+            }
+        }
+        return n;
+    }
+
+    static void clearSoftReferences() {
+        // The VM guarantees that all softly reachable objects have been
+        // cleared before it throws OutOfMemoryError
+        List<long[]> hog = new ArrayList<>();
+        try {
+            while (true) {
+                hog.add(new long[1024 * 1024]);
+            }
+        } catch (OutOfMemoryError e) {
+            hog = null;
+        }
+        System.gc();
+    }
+
+    static long time(boolean annotations) {
+        long t0 = System.nanoTime();
+        int n = annotations ? touchAnnotations() : touchMembers();
+        long t = System.nanoTime() - t0;
+        if (n < 0) throw new AssertionError();
+        return t;
+    }
+
+    static void round(String label) {
+        touchMembers();
+        touchAnnotations();
+        long warmMembers = time(false);
+        long warmAnnotations = time(true);
+        clearSoftReferences();
+        long coldMembers = time(false);
+        long coldAnnotations = time(true);
+        System.out.printf(
+            "%s: members %,10.3f ms (warm %,8.3f ms), annotations %,10.3f ms (warm %,8.3f ms)%n",
+            label,
+            coldMembers / 1000_000d, warmMembers / 1000_000d,
+            coldAnnotations / 1000_000d, warmAnnotations / 1000_000d);
+    }
+
+    public static void main(String[] args) {
+        System.out.println("rebuild latency after soft references are cleared:");
+        for (int i = 0; i < 3; i++) {
+            round("warm-up " + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            round("measure " + i);
+        }
+    }
+}
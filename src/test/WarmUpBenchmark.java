@@ -0,0 +1,90 @@
+package test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Compares the first-use latency of reflection on cold classes with that
+ * on classes warmed up by {@link Class#warmUpReflectionData(java.util.Collection, ForkJoinPool)},
+ * and the time the warm-up itself takes on one thread and on the common
+ * pool. The classes are the public {@code java.*} classes of {@code rt.jar},
+ * split into three disjoint sets so that each measurement sees fresh
+ * classes; run each configuration in a fresh VM.
+ */
+public class WarmUpBenchmark {
+
+    static List<Class<?>> loadClasses() throws IOException {
+        List<Class<?>> classes = new ArrayList<>();
+        String rtJar = System.getProperty("java.home") + "/lib/rt.jar";
+        try (JarFile jar = new JarFile(rtJar)) {
+            for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+                String name = e.nextElement().getName();
+                if (!name.startsWith("java/") || !name.endsWith(".class")) {
+                    continue;
+                }
+                name = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                try {
+                    classes.add(Class.forName(name, false, null));
+                } catch (ClassNotFoundException | LinkageError ignore) {
+                }
+            }
+        }
+        return classes;
+    }
+
+    static int touch(List<Class<?>> classes) {
+        int n = 0;
+        for (Class<?> c : classes) {
+            try {
+                n += c.getDeclaredMethods().length;
+                n += c.getDeclaredFields().length;
+                n += c.getMethods().length;
+                n += c.getAnnotations().length;
+                for (Method m : c.getDeclaredMethods()) {
+                    n += m.getDeclaredAnnotations().length;
+                }
+            } catch (LinkageError ignore) {
+            }
+        }
+        return n;
+    }
+
+    static double ms(long nanos) {
+        return nanos / 1000_000d;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Class<?>> all = loadClasses();
+        int third = all.size() / 3;
+        List<Class<?>> cold = all.subList(0, third);
+        List<Class<?>> sequential = all.subList(third, 2 * third);
+        List<Class<?>> parallel = all.subList(2 * third, all.size());
+        System.out.printf("%d classes in each set%n", third);
+
+        long t0 = System.nanoTime();
+        Class.warmUpReflectionData(sequential, null);
+        long t1 = System.nanoTime();
+        Class.warmUpReflectionData(parallel, ForkJoinPool.commonPool());
+        long t2 = System.nanoTime();
+        System.out.printf("warm-up: sequential %,10.3f ms, parallel (%d workers) %,10.3f ms%n",
+                          ms(t1 - t0), ForkJoinPool.commonPool().getParallelism(), ms(t2 - t1));
+
+        // cold set last, so that it does not pay for JIT compilation of
+        // the reflection code the warmed sets have not exercised yet
+        long t3 = System.nanoTime();
+        int n = touch(sequential);
+        long t4 = System.nanoTime();
+        n += touch(parallel);
+        long t5 = System.nanoTime();
+        n += touch(cold);
+        long t6 = System.nanoTime();
+        System.out.printf("first use: warmed %,10.3f ms, warmed in parallel %,10.3f ms, cold %,10.3f ms (%d)%n",
+                          ms(t4 - t3), ms(t5 - t4), ms(t6 - t5), n);
+    }
+}